@@ -0,0 +1,163 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Выборка за период GET /api/transactions?from=&to= на пользователях с разной длиной истории.
+// Для каждой истории создается пользователь со счетом и N транзакций, равномерно распределенных по span дням,
+// затем для каждого окна (в днях) делается серия запросов по случайным периодам. Печатает p50/p99 и число строк:
+// время должно расти с размером окна и почти не зависеть от длины истории (индекс user_id, date, id).
+// Запуск без сборки: java bench/DateRangeBenchmark.java --url http://localhost:8080 --histories 10000,200000
+public class DateRangeBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern ROW = Pattern.compile("\"id\"\\s*:");
+    private static final LocalDate END = LocalDate.of(2025, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int[] histories = ints(options.getOrDefault("histories", "10000,100000"));
+        int[] windows = ints(options.getOrDefault("windows", "1,7,30,365"));
+        int spanDays = Integer.parseInt(options.getOrDefault("span", "1095"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "100"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "5000"));
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        List<String> results = new ArrayList<>();
+        for (int history : histories) {
+            String token = seed(http, url, runId, history, spanDays, batchSize);
+            for (int window : windows) {
+                // Прогрев: первые запросы читают страницы индекса с диска
+                measure(http, url, token, window, spanDays, Math.max(10, requests / 10));
+                results.add(String.format("history=%-8d window=%-4d days %s", history, window,
+                        measure(http, url, token, window, spanDays, requests)));
+                System.out.println(results.get(results.size() - 1));
+            }
+        }
+
+        System.out.println();
+        results.forEach(System.out::println);
+    }
+
+    private static String seed(HttpClient http, String url, String runId, int count, int spanDays, int batchSize)
+            throws Exception {
+        String email = "range-" + runId + "-" + count + "@example.com";
+        String token = extract(TOKEN, send(http, post(url + "/api/auth/register", null,
+                "{\"name\":\"bench\",\"email\":\"" + email + "\",\"password\":\"bench-password\"}")));
+        String accountId = extract(ID, send(http, post(url + "/api/accounts", token,
+                "{\"name\":\"bench\",\"balance\":0,\"accountType\":\"обычный\",\"currency\":\"₽\",\"isMain\":true}")));
+
+        long started = System.nanoTime();
+        long spanSeconds = spanDays * 86_400L;
+        for (int from = 0; from < count; from += batchSize) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + batchSize, count); i++) {
+                LocalDateTime date = END.atStartOfDay().minusSeconds(spanSeconds - spanSeconds * i / count);
+                if (i > from) {
+                    body.append(',');
+                }
+                body.append("{\"accountId\":").append(accountId)
+                        .append(",\"amount\":").append((i % 20000 - 10000) / 100.0)
+                        .append(",\"description\":\"seed ").append(i)
+                        .append("\",\"date\":\"").append(date).append("\"}");
+            }
+            send(http, post(url + "/api/transactions/batch?duplicates=FLAG", token, body.append(']').toString()));
+        }
+        System.out.printf("seeded %d transactions over %d days in %.1f s%n",
+                count, spanDays, (System.nanoTime() - started) / 1e9);
+        return token;
+    }
+
+    private static String measure(HttpClient http, String url, String token, int window, int spanDays, int requests)
+            throws Exception {
+        long[] latencies = new long[requests];
+        long rows = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < requests; i++) {
+            LocalDate from = END.minusDays(spanDays).plusDays(random.nextInt(Math.max(1, spanDays - window + 1)));
+            LocalDate to = from.plusDays(window - 1);
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create(url + "/api/transactions?from=" + from + "&to=" + to))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(60))
+                    .GET().build();
+            long start = System.nanoTime();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies[i] = System.nanoTime() - start;
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(request.uri() + " -> " + response.statusCode());
+            }
+            rows += count(response.body());
+        }
+        Arrays.sort(latencies);
+        return String.format("rows/request=%-7d p50=%7.2f ms p99=%7.2f ms",
+                rows / requests, percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long count(String body) {
+        Matcher matcher = ROW.matcher(body);
+        long rows = 0;
+        while (matcher.find()) {
+            rows++;
+        }
+        return rows;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(300))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static String send(HttpClient http, HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String extract(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return matcher.group(1);
+    }
+
+    private static int[] ints(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new java.util.HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+}
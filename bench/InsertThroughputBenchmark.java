@@ -0,0 +1,156 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Пропускная способность записи: count транзакций (по умолчанию 100k) в один счет нового пользователя.
+// mode=batch - пакетами POST /api/transactions/batch (id из блоков id_generators, вставка пакетами JDBC),
+// mode=single - по одной через POST /api/transactions из clients параллельных клиентов.
+// Печатает строк в секунду и p50/p99 одного запроса.
+// Запуск без сборки: java bench/InsertThroughputBenchmark.java --url http://localhost:8080 --count 100000 --batch 1000
+public class InsertThroughputBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern CREATED = Pattern.compile("\"created\"\\s*:\\s*(\\d+)");
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int count = Integer.parseInt(options.getOrDefault("count", "100000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "1000"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "16"));
+        String mode = options.getOrDefault("mode", "batch");
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        String email = "insert-" + Long.toString(System.currentTimeMillis(), 36) + "@example.com";
+        String token = extract(TOKEN, send(http, post(url + "/api/auth/register", null,
+                "{\"name\":\"bench\",\"email\":\"" + email + "\",\"password\":\"bench-password\"}")));
+        String accountId = extract(ID, send(http, post(url + "/api/accounts", token,
+                "{\"name\":\"bench\",\"balance\":0,\"accountType\":\"обычный\",\"currency\":\"₽\",\"isMain\":true}")));
+
+        long[] latencies;
+        long started = System.nanoTime();
+        switch (mode) {
+            case "batch" -> latencies = runBatches(http, url, token, accountId, count, batchSize);
+            case "single" -> latencies = runSingle(http, url, token, accountId, count, clients);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("mode=%s rows=%d requests=%d elapsed=%.1f s rows/s=%.0f p50=%.2f ms p99=%.2f ms%n",
+                mode, count, latencies.length, elapsed, count / elapsed,
+                percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long[] runBatches(HttpClient http, String url, String token, String accountId,
+                                     int count, int batchSize) throws Exception {
+        long[] latencies = new long[(count + batchSize - 1) / batchSize];
+        for (int from = 0, request = 0; from < count; from += batchSize, request++) {
+            StringBuilder body = new StringBuilder("[");
+            int to = Math.min(from + batchSize, count);
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    body.append(',');
+                }
+                body.append(transaction(accountId, i));
+            }
+            HttpRequest httpRequest = post(url + "/api/transactions/batch?duplicates=FLAG", token,
+                    body.append(']').toString());
+            long start = System.nanoTime();
+            String response = send(http, httpRequest);
+            latencies[request] = System.nanoTime() - start;
+            if (Integer.parseInt(extract(CREATED, response)) != to - from) {
+                throw new IllegalStateException("Batch at " + from + " not fully created: " + response);
+            }
+        }
+        return latencies;
+    }
+
+    private static long[] runSingle(HttpClient http, String url, String token, String accountId,
+                                    int count, int clients) throws InterruptedException {
+        long[] latencies = new long[count];
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.execute(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        HttpRequest request = post(url + "/api/transactions?duplicates=FLAG", token,
+                                transaction(accountId, i));
+                        long start = System.nanoTime();
+                        try {
+                            send(http, request);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                });
+            }
+        }
+        return latencies;
+    }
+
+    // Транзакции растянуты по году: дневной индекс и месячные итоги получают много разных строк
+    private static String transaction(String accountId, int i) {
+        return "{\"accountId\":" + accountId +
+                ",\"amount\":" + (i % 20000 - 10000) / 100.0 +
+                ",\"description\":\"insert " + i +
+                "\",\"date\":\"" + START.plusMinutes(i * 5L) + "\"}";
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(300))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static String send(HttpClient http, HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String extract(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return matcher.group(1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new java.util.HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+}
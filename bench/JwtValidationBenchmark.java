@@ -0,0 +1,143 @@
+import com.cashflip.security.AuthenticatedUser;
+import com.cashflip.security.JwtPrincipalCache;
+import com.cashflip.util.JwtClaims;
+import com.cashflip.util.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Проверка JWT в JwtAuthenticationFilter без кэша и с кэшем проверенных токенов (JwtPrincipalCache).
+// uncached - JwtUtils.parse (подпись HS256, разбор claims) и validateToken, как при промахе кэша;
+// cached - JwtPrincipalCache.get (SHA-256 токена и поиск в Caffeine), как при попадании.
+// Загрузка пользователя из БД при промахе (loadUserByUsername) не измеряется: реальная разница только больше.
+// threads потоков проверяют по кругу tokens разных токенов. Печатает ops/s и p50/p99 одной проверки.
+// Запуск в процессе, с классами приложения:
+//   mvn -q compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/classes:$(cat target/cp.txt) bench/JwtValidationBenchmark.java --threads 1,8 --ops 200000
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "cashflipSecretKey12345678901234567890123456789012";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int[] threads = ints(options.getOrDefault("threads", "1,8"));
+        int ops = Integer.parseInt(options.getOrDefault("ops", "200000"));
+        int tokenCount = Integer.parseInt(options.getOrDefault("tokens", "1000"));
+
+        JwtUtils jwtUtils = jwtUtils();
+        JwtPrincipalCache cache = new JwtPrincipalCache(new SimpleMeterRegistry(), tokenCount * 2L, 300);
+        List<String> tokens = new ArrayList<>();
+        List<AuthenticatedUser> users = new ArrayList<>();
+        for (int i = 0; i < tokenCount; i++) {
+            AuthenticatedUser user = new AuthenticatedUser((long) i + 1, "bench-" + i + "@example.com", "");
+            String token = jwtUtils.generateToken(user);
+            tokens.add(token);
+            users.add(user);
+            cache.put(token, user, jwtUtils.parse(token).expiration());
+        }
+
+        Check uncached = index -> {
+            JwtClaims claims = jwtUtils.parse(tokens.get(index));
+            if (!jwtUtils.validateToken(claims, users.get(index))) {
+                throw new IllegalStateException("Token rejected");
+            }
+        };
+        Check cached = index -> {
+            if (cache.get(tokens.get(index)) == null) {
+                throw new IllegalStateException("Cache miss");
+            }
+        };
+
+        List<String> results = new ArrayList<>();
+        for (int threadCount : threads) {
+            // Прогрев JIT для обоих путей
+            measure(uncached, threadCount, Math.max(1000, ops / 10), tokenCount);
+            measure(cached, threadCount, Math.max(1000, ops / 10), tokenCount);
+            results.add(String.format("threads=%-3d uncached %s", threadCount,
+                    measure(uncached, threadCount, ops, tokenCount)));
+            System.out.println(results.get(results.size() - 1));
+            results.add(String.format("threads=%-3d cached   %s", threadCount,
+                    measure(cached, threadCount, ops, tokenCount)));
+            System.out.println(results.get(results.size() - 1));
+        }
+
+        System.out.println();
+        results.forEach(System.out::println);
+    }
+
+    private interface Check {
+        void run(int index);
+    }
+
+    private static String measure(Check check, int threadCount, int ops, int tokenCount) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int t = 0; t < threadCount; t++) {
+                int offset = t;
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[ops];
+                    for (int i = 0; i < ops; i++) {
+                        long start = System.nanoTime();
+                        check.run((offset + i) % tokenCount);
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] all = new long[ops * threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                System.arraycopy(workers.get(t).get(), 0, all, t * ops, ops);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            Arrays.sort(all);
+            return String.format("%,12.0f ops/s p50=%7.2f us p99=%7.2f us",
+                    all.length / seconds, percentile(all, 0.50), percentile(all, 0.99));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Поля JwtUtils заполняет Spring (@Value, @PostConstruct); здесь - так же, но без контекста
+    private static JwtUtils jwtUtils() throws Exception {
+        JwtUtils jwtUtils = new JwtUtils();
+        set(jwtUtils, "secret", SECRET);
+        set(jwtUtils, "expiration", 604_800_000L);
+        Method init = JwtUtils.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(jwtUtils);
+        return jwtUtils;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3;
+    }
+
+    private static int[] ints(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new java.util.HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+}
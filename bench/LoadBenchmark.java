@@ -0,0 +1,169 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Нагрузочный прогон API: N клиентов в замкнутом цикле (каждый шлет следующий запрос после ответа),
+// смесь чтения страницы истории и записи транзакций. Печатает пропускную способность и p50/p99.
+// Запуск без сборки: java bench/LoadBenchmark.java --url http://localhost:8080 --clients 400 --duration 60
+public class LoadBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        int users = Integer.parseInt(options.getOrDefault("users", "20"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "15"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        double writeRatio = Double.parseDouble(options.getOrDefault("write-ratio", "0.2"));
+        String label = options.getOrDefault("label", "run");
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        // Отдельные пользователи со своим счетом: нагрузка распределена, как у реальных клиентов
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<String[]> sessions = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String email = "bench-" + runId + "-" + i + "@example.com";
+            String token = extract(TOKEN, send(http, post(url + "/api/auth/register", null,
+                    "{\"name\":\"bench\",\"email\":\"" + email + "\",\"password\":\"bench-password\"}")));
+            String accountId = extract(ID, send(http, post(url + "/api/accounts", token,
+                    "{\"name\":\"bench\",\"balance\":0,\"accountType\":\"обычный\",\"currency\":\"₽\",\"isMain\":true}")));
+            sessions.add(new String[]{token, accountId});
+        }
+
+        System.out.printf("[%s] warmup %d s, %d clients%n", label, warmupSeconds, clients);
+        run(http, url, sessions, clients, warmupSeconds, writeRatio, null);
+
+        Recorder recorder = new Recorder();
+        System.out.printf("[%s] measuring %d s, %d clients%n", label, durationSeconds, clients);
+        long started = System.nanoTime();
+        run(http, url, sessions, clients, durationSeconds, writeRatio, recorder);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        recorder.print(label, elapsed);
+    }
+
+    private static void run(HttpClient http, String url, List<String[]> sessions, int clients,
+                            int seconds, double writeRatio, Recorder recorder) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                String[] session = sessions.get(c % sessions.size());
+                executor.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()) {
+                        boolean write = random.nextDouble() < writeRatio;
+                        HttpRequest request = write
+                                ? post(url + "/api/transactions", session[0],
+                                        "{\"accountId\":" + session[1] + ",\"amount\":" + (random.nextInt(20000) - 10000) / 100.0
+                                        + ",\"description\":\"bench " + random.nextLong() + "\",\"date\":\"2025-01-15T12:00:00\"}")
+                                : HttpRequest.newBuilder(URI.create(url + "/api/transactions?limit=50"))
+                                        .header("Authorization", "Bearer " + session[0])
+                                        .timeout(Duration.ofSeconds(60))
+                                        .GET().build();
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        if (recorder != null) {
+                            recorder.record(System.nanoTime() - start, status >= 200 && status < 300);
+                        }
+                    }
+                });
+            }
+            Thread.sleep(seconds * 1000L);
+            stop.set(true);
+        }
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static String send(HttpClient http, HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String extract(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return matcher.group(1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new java.util.HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    // Задержки в микросекундах; на минуту прогона при десятках тысяч запросов в секунду хватает массива с ростом
+    private static final class Recorder {
+
+        private long[] latencies = new long[1 << 20];
+        private int count;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos / 1000;
+        }
+
+        synchronized void print(String label, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("[%s] requests=%d errors=%d throughput=%.1f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                    label, count, errors.get(), count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    count > 0 ? sorted[count - 1] / 1000.0 : 0.0);
+        }
+
+        private double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Сравнение платформенных и виртуальных потоков на одном и том же API.
+# Собирает jar, по очереди запускает приложение в двух режимах и гоняет bench/LoadBenchmark.java.
+# Нужны запущенный MySQL из application.properties и JDK 21.
+#
+#   bench/virtual-threads.sh [клиентов] [секунд]
+#
+# В режиме virtual монитор закреплений (VirtualThreadPinningMonitor) пишет места synchronized-блокировок
+# в JDBC/Hibernate в лог приложения; итоговые счетчики печатаются после прогона.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CLIENTS="${1:-400}"
+DURATION="${2:-60}"
+PORT="${BENCH_PORT:-8089}"
+POOL_SIZE="${BENCH_POOL_SIZE:-20}"
+OUT="${BENCH_OUT:-target/bench}"
+
+./mvnw -q -DskipTests package
+JAR="$(ls target/*.jar | grep -v original | head -n 1)"
+mkdir -p "$OUT"
+
+run_mode() {
+    local mode="$1"
+    local profile_args=()
+    if [ "$mode" = "virtual" ]; then
+        profile_args=(--spring.profiles.active=virtual)
+    fi
+
+    # Одинаковые пул соединений и лимиты в обоих режимах; SQL в stdout отключен, чтобы не мерить консоль
+    java -Xms1g -Xmx1g -jar "$JAR" \
+        --server.port="$PORT" \
+        --spring.jpa.show-sql=false \
+        --spring.datasource.hikari.maximum-pool-size="$POOL_SIZE" \
+        --management.endpoints.web.exposure.include=health,metrics \
+        "${profile_args[@]}" > "$OUT/app-$mode.log" 2>&1 &
+    local pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    for _ in $(seq 1 120); do
+        if curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+            break
+        fi
+        sleep 1
+    done
+
+    java bench/LoadBenchmark.java --url "http://localhost:$PORT" --clients "$CLIENTS" \
+        --duration "$DURATION" --label "$mode" | tee "$OUT/result-$mode.txt"
+
+    if [ "$mode" = "virtual" ]; then
+        echo "[virtual] pinned events:"
+        curl -s "http://localhost:$PORT/actuator/metrics/jvm.threads.virtual.pinned" || echo "  none recorded"
+        echo
+        grep "Virtual thread pinned" "$OUT/app-$mode.log" || true
+    fi
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+run_mode platform
+run_mode virtual
+
+echo
+grep -h "throughput" "$OUT"/result-platform.txt "$OUT"/result-virtual.txt
@@ -0,0 +1,30 @@
+package com.cashflip.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Импорт выписок идет в фоне на небольшом отдельном пуле, чтобы не занимать потоки запросов.
+    // С spring.threads.virtual.enabled воркеры - виртуальные потоки; число воркеров и очередь те же
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.workers:2}") int workers,
+                                                 @Value("${import.queue-capacity:100}") int queueCapacity,
+                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("import-", 1).factory());
+        }
+        executor.initialize();
+        return executor;
+    }
+}
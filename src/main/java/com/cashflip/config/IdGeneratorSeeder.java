@@ -0,0 +1,64 @@
+package com.cashflip.config;
+
+import com.cashflip.entity.IdGenerators;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Выставляет счетчики id_generators выше уже существующих id.
+// Нужен при переходе с AUTO_INCREMENT: Hibernate сам заводит счетчик с 1 и выдал бы занятые id.
+@Component
+public class IdGeneratorSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorSeeder.class);
+
+    // Таблица -> размер блока ее генератора
+    private static final Map<String, Integer> SEGMENTS = Map.of(
+            "users", IdGenerators.USER_ALLOCATION,
+            "accounts", IdGenerators.ACCOUNT_ALLOCATION,
+            "categories", IdGenerators.CATEGORY_ALLOCATION,
+            "transactions", IdGenerators.TRANSACTION_ALLOCATION);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory в зависимостях гарантирует, что схема уже создана или обновлена
+    public IdGeneratorSeeder(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void seed() {
+        SEGMENTS.forEach(this::seed);
+    }
+
+    private void seed(String table, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // Pooled-оптимизатор выдает блок (next_val - allocationSize, next_val], поэтому запас в размер блока
+        long floor = maxId + allocationSize + 1;
+
+        int updated = jdbcTemplate.update(
+                "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ? " +
+                "WHERE " + IdGenerators.NAME_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?",
+                floor, table, floor);
+        if (updated == 0) {
+            Integer exists = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + IdGenerators.TABLE + " WHERE " + IdGenerators.NAME_COLUMN + " = ?",
+                    Integer.class, table);
+            if (exists == null || exists == 0) {
+                jdbcTemplate.update(
+                        "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", " +
+                        IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)",
+                        table, floor);
+                updated = 1;
+            }
+        }
+        if (updated > 0) {
+            logger.info("Id generator for {} set to {}", table, floor);
+        }
+    }
+}
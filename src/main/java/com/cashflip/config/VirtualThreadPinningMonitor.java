@@ -0,0 +1,133 @@
+package com.cashflip.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Поиск закреплений виртуальных потоков за носителем: в Java 21 блокировка внутри synchronized
+// (драйвер MySQL, пул соединений, Hibernate) занимает поток ОС на все время ожидания.
+// События jdk.VirtualThreadPinned читаются из JFR в самом приложении, без записи файла.
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "diagnostics.virtual-threads.pinning.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_LOGGED_SITES = 1000;
+    private static final int LOGGED_FRAMES = 12;
+
+    // Первый кадр стека из этих пакетов определяет источник закрепления
+    private static final Map<String, String> SOURCES = Map.of(
+            "com.mysql.", "jdbc",
+            "com.zaxxer.hikari.", "pool",
+            "org.hibernate.", "hibernate",
+            "org.springframework.", "spring",
+            "com.cashflip.", "app");
+    private static final List<String> FLAGGED = List.of("jdbc", "pool", "hibernate");
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    // Каждое место закрепления пишется в лог один раз; дальше только счетчик
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @Value("${diagnostics.virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Virtual thread pinning monitor started (threshold {} ms)", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+
+        String source = "other";
+        RecordedFrame site = null;
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame() || frame.getMethod() == null) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            String match = sourceOf(type);
+            if (match != null) {
+                source = match;
+                site = frame;
+                break;
+            }
+        }
+
+        counters.computeIfAbsent(source, s -> Counter.builder("jvm.threads.virtual.pinned")
+                .tag("source", s)
+                .register(meterRegistry)).increment();
+
+        String siteName = site != null ? frameName(site) : frames.isEmpty() ? "unknown" : frameName(frames.get(0));
+        if (loggedSites.size() >= MAX_LOGGED_SITES || !loggedSites.add(siteName)) {
+            return;
+        }
+        StringBuilder trace = new StringBuilder();
+        for (int i = 0; i < Math.min(LOGGED_FRAMES, frames.size()); i++) {
+            trace.append("\n\tat ").append(frameName(frames.get(i)));
+        }
+        if (FLAGGED.contains(source)) {
+            logger.warn("Virtual thread pinned for {} ms in {} ({}); synchronized section blocks a carrier thread:{}",
+                    event.getDuration().toMillis(), siteName, source, trace);
+        } else {
+            logger.info("Virtual thread pinned for {} ms in {} ({}):{}",
+                    event.getDuration().toMillis(), siteName, source, trace);
+        }
+    }
+
+    private String sourceOf(String type) {
+        for (Map.Entry<String, String> entry : SOURCES.entrySet()) {
+            if (type.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String frameName(RecordedFrame frame) {
+        if (frame.getMethod() == null) {
+            return "?";
+        }
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
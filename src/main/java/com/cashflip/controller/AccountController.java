@@ -1,21 +1,34 @@
 package com.cashflip.controller;
 
 import com.cashflip.dto.AccountDTO;
+import com.cashflip.dto.BalancePointDTO;
 import com.cashflip.service.AccountService;
+import com.cashflip.service.BalanceHistoryService;
+import com.cashflip.service.LedgerWriteExecutor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/accounts")
 public class AccountController {
 
     private final AccountService accountService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final LedgerWriteExecutor ledgerWriteExecutor;
 
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, BalanceHistoryService balanceHistoryService,
+                             LedgerWriteExecutor ledgerWriteExecutor) {
         this.accountService = accountService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.ledgerWriteExecutor = ledgerWriteExecutor;
     }
 
     @GetMapping
@@ -28,17 +41,45 @@ public class AccountController {
         return new ResponseEntity<>(accountService.createAccount(accountDTO), HttpStatus.CREATED);
     }
 
+    // Изменение и удаление счета меняют его баланс и идут через очередь записи пользователя вместе с транзакциями
     @PutMapping("/{id}")
-    public ResponseEntity<AccountDTO> updateAccount(@PathVariable Long id, @RequestBody AccountDTO accountDTO) {
-        return ResponseEntity.ok(accountService.updateAccount(id, accountDTO));
+    public ResponseEntity<?> updateAccount(@PathVariable Long id, @RequestBody AccountDTO accountDTO) {
+        try {
+            return ResponseEntity.ok(ledgerWriteExecutor.call(() -> accountService.updateAccount(id, accountDTO)));
+        } catch (RejectedExecutionException e) {
+            return writeQueueFull();
+        }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteAccount(@PathVariable Long id) {
-        accountService.deleteAccount(id);
+    public ResponseEntity<?> deleteAccount(@PathVariable Long id) {
+        try {
+            ledgerWriteExecutor.run(() -> accountService.deleteAccount(id));
+        } catch (RejectedExecutionException e) {
+            return writeQueueFull();
+        }
         return ResponseEntity.noContent().build(); // Добавить возврат ResponseEntity
     }
 
+    @GetMapping("/{id}/balance-history")
+    public ResponseEntity<?> getBalanceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String step) {
+        try {
+            List<BalancePointDTO> history = balanceHistoryService.getBalanceHistory(id, from, to, step);
+            return ResponseEntity.ok(history);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Дневной индекс счета еще не построен (BalanceHistoryBackfillJob)
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/recover-from-transactions")
     public ResponseEntity<List<AccountDTO>> recoverAccountsFromTransactions() {
         return ResponseEntity.ok(accountService.recoverAccountsFromTransactions());
@@ -57,4 +98,10 @@ public class AccountController {
                     .body(List.of());
         }
     }
+
+    // Очередь записи пользователя переполнена (ledger.write-queue.enabled=true)
+    private ResponseEntity<?> writeQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Too many pending writes, please retry"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.cashflip.controller;
+
+import com.cashflip.dto.ImportJobDTO;
+import com.cashflip.importer.StatementFormat;
+import com.cashflip.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    private final ImportService importService;
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // Тело запроса - сам файл выписки (не multipart), читается потоком.
+    // Формат берется из параметра format, затем из Content-Type, иначе определяется по началу файла
+    @PostMapping
+    public ResponseEntity<?> startImport(
+            @RequestParam Long accountId,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String charset,
+            @RequestParam(required = false) String duplicates,
+            HttpServletRequest request) {
+        try {
+            StatementFormat statementFormat = format != null && !format.isEmpty()
+                    ? StatementFormat.fromName(format)
+                    : StatementFormat.fromContentType(request.getContentType());
+            Charset statementCharset = charset != null && !charset.isEmpty()
+                    ? Charset.forName(charset)
+                    : StandardCharsets.UTF_8;
+
+            ImportJobDTO job = importService.startImport(accountId, statementFormat, statementCharset,
+                    duplicates, request.getInputStream());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error starting statement import: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDTO> getImport(@PathVariable String id) {
+        ImportJobDTO job = importService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.cashflip.controller;
+
+import com.cashflip.security.CurrentUser;
+import com.cashflip.service.ChangeStreamHub;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+public class StreamController {
+
+    private final ChangeStreamHub changeStreamHub;
+    private final CurrentUser currentUser;
+
+    public StreamController(ChangeStreamHub changeStreamHub, CurrentUser currentUser) {
+        this.changeStreamHub = changeStreamHub;
+        this.currentUser = currentUser;
+    }
+
+    // Server-sent events: READY с текущей версией, затем BALANCE, TRANSACTION_UPSERT/DELETE и т.д.
+    // По RESYNC клиент догоняет состояние через GET /api/sync?since=<версия>
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        try {
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "no-cache")
+                    .header("X-Accel-Buffering", "no")
+                    .body(changeStreamHub.subscribe(currentUser.getId()));
+        } catch (IllegalStateException e) {
+            // Лимит соединений пользователя исчерпан
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.cashflip.controller;
+
+import com.cashflip.service.SyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+    private static final Logger logger = LoggerFactory.getLogger(SyncController.class);
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    // since - cursor из предыдущего ответа; без него возвращается полная выгрузка
+    @GetMapping
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since) {
+        try {
+            return ResponseEntity.ok(syncService.getChanges(since));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error building sync response: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+}
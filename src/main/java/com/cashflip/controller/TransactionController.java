@@ -1,34 +1,74 @@
 package com.cashflip.controller;
 
+import com.cashflip.dto.TransactionBatchResultDTO;
 import com.cashflip.dto.TransactionDTO;
+import com.cashflip.dto.TransactionPageDTO;
+import com.cashflip.service.DuplicateTransactionException;
+import com.cashflip.service.LedgerWriteExecutor;
 import com.cashflip.service.TransactionService;
-import com.cashflip.service.AccountService;
+import com.cashflip.service.TransactionSummaryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
     
     private final TransactionService transactionService;
-    private final AccountService accountService;
+    private final TransactionSummaryService transactionSummaryService;
+    private final LedgerWriteExecutor ledgerWriteExecutor;
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Конец дня с точностью до микросекунд (точность DATETIME(6) в MySQL)
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59, 999_999_000);
     
-    public TransactionController(TransactionService transactionService, AccountService accountService) {
+    public TransactionController(TransactionService transactionService,
+                                 TransactionSummaryService transactionSummaryService,
+                                 LedgerWriteExecutor ledgerWriteExecutor) {
         this.transactionService = transactionService;
-        this.accountService = accountService;
+        this.transactionSummaryService = transactionSummaryService;
+        this.ledgerWriteExecutor = ledgerWriteExecutor;
     }
     
     @GetMapping
-    public ResponseEntity<List<TransactionDTO>> getUserTransactions() {
+    public ResponseEntity<?> getUserTransactions(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
         try {
-            return ResponseEntity.ok(transactionService.getUserTransactions());
+            // Период: from и to принимаются как дата (yyyy-MM-dd, границы дня включительно) или дата-время
+            LocalDateTime start = parseBound(from, false);
+            LocalDateTime end = parseBound(to, true);
+            if ((start == null) != (end == null)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Parameters from and to must be used together"));
+            }
+            
+            // Без limit и cursor возвращаем весь список, как раньше
+            if (limit == null && cursor == null) {
+                return ResponseEntity.ok(start != null
+                        ? transactionService.getTransactionsByDateRange(start, end)
+                        : transactionService.getUserTransactions());
+            }
+            TransactionPageDTO page = transactionService.getUserTransactionsPage(
+                    limit != null ? limit : DEFAULT_PAGE_SIZE, cursor, start, end);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             // Добавить логирование
             logger.error("Error fetching transactions: " + e.getMessage(), e);
@@ -36,37 +76,96 @@ public class TransactionController {
         }
     }
     
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "category") String groupBy) {
+        try {
+            return ResponseEntity.ok(transactionSummaryService.getSummary(
+                    parseBound(from, false), parseBound(to, true), groupBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error building transaction summary: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+    
     @PostMapping
-    public ResponseEntity<?> createTransaction(@RequestBody TransactionDTO transactionDTO) {
+    public ResponseEntity<?> createTransaction(@RequestBody TransactionDTO transactionDTO,
+                                               @RequestParam(required = false) String duplicates) {
         try {
-            // Проверяем принадлежность счета пользователю
-            if (!accountService.isAccountOwnedByCurrentUser(transactionDTO.getAccountId())) {
+            TransactionDTO createdTransaction = ledgerWriteExecutor.call(
+                    () -> transactionService.createTransaction(transactionDTO, duplicates));
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdTransaction);
+        } catch (DuplicateTransactionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage(), "duplicateOf", e.getExistingId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            if (hasCause(e, AccessDeniedException.class)) {
                 logger.warn("Attempt to create transaction for account not owned by user: " + transactionDTO.getAccountId());
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Account does not belong to current user"));
             }
-            
-            TransactionDTO createdTransaction = transactionService.createTransaction(transactionDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdTransaction);
-        } catch (Exception e) {
+            if (e instanceof RejectedExecutionException) {
+                return writeQueueFull();
+            }
+            if (isConcurrentModification(e)) {
+                logger.warn("Concurrent balance update while creating transaction: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Account was modified concurrently, please retry"));
+            }
             logger.error("Error creating transaction: " + e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTransactions(@RequestBody List<TransactionDTO> transactionDTOs,
+                                                @RequestParam(required = false) String duplicates) {
+        try {
+            TransactionBatchResultDTO result = ledgerWriteExecutor.call(
+                    () -> transactionService.createTransactions(transactionDTOs, duplicates));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            if (e instanceof RejectedExecutionException) {
+                return writeQueueFull();
+            }
+            if (isConcurrentModification(e)) {
+                logger.warn("Concurrent balance update while creating transaction batch: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Account was modified concurrently, please retry"));
+            }
+            logger.error("Error creating transaction batch: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<?> updateTransaction(@PathVariable Long id, @RequestBody TransactionDTO transactionDTO) {
         try {
-            // Проверяем принадлежность счета пользователю
-            if (!accountService.isAccountOwnedByCurrentUser(transactionDTO.getAccountId())) {
+            TransactionDTO updatedTransaction = ledgerWriteExecutor.call(
+                    () -> transactionService.updateTransaction(id, transactionDTO));
+            return ResponseEntity.ok(updatedTransaction);
+        } catch (Exception e) {
+            if (hasCause(e, AccessDeniedException.class)) {
                 logger.warn("Attempt to update transaction for account not owned by user: " + transactionDTO.getAccountId());
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "Account does not belong to current user"));
             }
-            
-            TransactionDTO updatedTransaction = transactionService.updateTransaction(id, transactionDTO);
-            return ResponseEntity.ok(updatedTransaction);
-        } catch (Exception e) {
+            if (e instanceof RejectedExecutionException) {
+                return writeQueueFull();
+            }
+            if (isConcurrentModification(e)) {
+                logger.warn("Concurrent balance update while updating transaction: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Account was modified concurrently, please retry"));
+            }
             logger.error("Error updating transaction: " + e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -75,11 +174,56 @@ public class TransactionController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteTransaction(@PathVariable Long id) {
         try {
-            transactionService.deleteTransaction(id);
+            ledgerWriteExecutor.run(() -> transactionService.deleteTransaction(id));
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
+            if (e instanceof RejectedExecutionException) {
+                return writeQueueFull();
+            }
+            if (isConcurrentModification(e)) {
+                logger.warn("Concurrent balance update while deleting transaction: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Account was modified concurrently, please retry"));
+            }
             logger.error("Error deleting transaction: " + e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+    
+    private LocalDateTime parseBound(String value, boolean endOfPeriod) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return endOfPeriod ? date.atTime(END_OF_DAY) : date.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+    
+    // Очередь записи пользователя переполнена (ledger.write-queue.enabled=true)
+    private ResponseEntity<?> writeQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("error", "Too many pending writes, please retry"));
+    }
+    
+    // Конфликт версий (@Version) при изменении сущности, а также взаимная блокировка
+    // или таймаут ожидания блокировки строки счета в InnoDB: клиент может повторить запрос
+    private boolean isConcurrentModification(Throwable e) {
+        return hasCause(e, OptimisticLockingFailureException.class)
+            || hasCause(e, PessimisticLockingFailureException.class);
+    }
+    
+    private boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            if (type.isInstance(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.cashflip.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class BalancePointDTO {
+    private LocalDate date;
+    private BigDecimal balance;
+
+    public BalancePointDTO() {
+    }
+
+    public BalancePointDTO(LocalDate date, BigDecimal balance) {
+        this.date = date;
+        this.balance = balance;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
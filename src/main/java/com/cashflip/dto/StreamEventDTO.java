@@ -0,0 +1,64 @@
+package com.cashflip.dto;
+
+import java.math.BigDecimal;
+
+// Событие потока /api/stream; имя SSE-события совпадает с type
+public class StreamEventDTO {
+    // READY, BALANCE, TRANSACTION_UPSERT, TRANSACTION_DELETE, ACCOUNT_DELETE, CATEGORY_UPSERT, CATEGORY_DELETE
+    // или RESYNC (события пропущены - нужно запросить /api/sync)
+    private String type;
+    // Версия журнала изменений (курсор /api/sync), после которой состояние включает это событие
+    private Long version;
+    private Long id;
+    private BigDecimal balance;
+    private TransactionDTO transaction;
+
+    public StreamEventDTO() {
+    }
+
+    public StreamEventDTO(String type, Long version, Long id) {
+        this.type = type;
+        this.version = version;
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public TransactionDTO getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(TransactionDTO transaction) {
+        this.transaction = transaction;
+    }
+}
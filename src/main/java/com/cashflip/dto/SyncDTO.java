@@ -0,0 +1,83 @@
+package com.cashflip.dto;
+
+import java.util.List;
+
+public class SyncDTO {
+    // Передается в следующий запрос как since
+    private Long cursor;
+    // true - это полная выгрузка (первый запрос или курсор старше журнала): локальные данные нужно заменить
+    private boolean reset;
+    private List<TransactionDTO> transactions;
+    private List<AccountDTO> accounts;
+    private List<CategoryDTO> categories;
+    private List<Long> deletedTransactionIds;
+    private List<Long> deletedAccountIds;
+    private List<Long> deletedCategoryIds;
+
+    public SyncDTO() {
+    }
+
+    public Long getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Long cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public List<TransactionDTO> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<TransactionDTO> transactions) {
+        this.transactions = transactions;
+    }
+
+    public List<AccountDTO> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<AccountDTO> accounts) {
+        this.accounts = accounts;
+    }
+
+    public List<CategoryDTO> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryDTO> categories) {
+        this.categories = categories;
+    }
+
+    public List<Long> getDeletedTransactionIds() {
+        return deletedTransactionIds;
+    }
+
+    public void setDeletedTransactionIds(List<Long> deletedTransactionIds) {
+        this.deletedTransactionIds = deletedTransactionIds;
+    }
+
+    public List<Long> getDeletedAccountIds() {
+        return deletedAccountIds;
+    }
+
+    public void setDeletedAccountIds(List<Long> deletedAccountIds) {
+        this.deletedAccountIds = deletedAccountIds;
+    }
+
+    public List<Long> getDeletedCategoryIds() {
+        return deletedCategoryIds;
+    }
+
+    public void setDeletedCategoryIds(List<Long> deletedCategoryIds) {
+        this.deletedCategoryIds = deletedCategoryIds;
+    }
+}
@@ -0,0 +1,143 @@
+package com.cashflip.dto;
+
+import java.util.List;
+
+public class TransactionBatchResultDTO {
+    private int created;
+    private int failed;
+    // Элементы, совпавшие с уже записанными транзакциями (MERGED, FLAGGED или отклоненные)
+    private int duplicates;
+    // Результат по каждому элементу запроса в исходном порядке
+    private List<Item> items;
+
+    public TransactionBatchResultDTO() {
+    }
+
+    public TransactionBatchResultDTO(int created, int failed, List<Item> items) {
+        this(created, failed, 0, items);
+    }
+
+    public TransactionBatchResultDTO(int created, int failed, int duplicates, List<Item> items) {
+        this.created = created;
+        this.failed = failed;
+        this.duplicates = duplicates;
+        this.items = items;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+        private int index;
+        // CREATED, FLAGGED (записан как возможный дубликат), MERGED (id - уже записанная транзакция) или FAILED
+        private String status;
+        private Long id;
+        private String error;
+        private Long duplicateOf;
+
+        public Item() {
+        }
+
+        public Item(int index, String status, Long id, String error) {
+            this.index = index;
+            this.status = status;
+            this.id = id;
+            this.error = error;
+        }
+
+        public static Item created(int index, Long id) {
+            return new Item(index, "CREATED", id, null);
+        }
+
+        public static Item failed(int index, String error) {
+            return new Item(index, "FAILED", null, error);
+        }
+
+        public static Item flagged(int index, Long id, Long duplicateOf) {
+            Item item = new Item(index, "FLAGGED", id, null);
+            item.setDuplicateOf(duplicateOf);
+            return item;
+        }
+
+        public static Item merged(int index, Long existingId) {
+            Item item = new Item(index, "MERGED", existingId, null);
+            item.setDuplicateOf(existingId);
+            return item;
+        }
+
+        public static Item rejected(int index, Long existingId) {
+            Item item = failed(index, "Такая транзакция уже записана");
+            item.setDuplicateOf(existingId);
+            return item;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+        public Long getDuplicateOf() {
+            return duplicateOf;
+        }
+
+        public void setDuplicateOf(Long duplicateOf) {
+            this.duplicateOf = duplicateOf;
+        }
+    }
+}
@@ -15,6 +15,8 @@ public class TransactionDTO {
     private LocalDateTime date;
     private String note;
     private String description; // Добавляем поле description
+    // Id ранее записанной транзакции, если эта записана как возможный дубликат
+    private Long duplicateOf;
 
     // Конструктор без параметров
     public TransactionDTO() {
@@ -37,6 +39,22 @@ public class TransactionDTO {
         this.description = description;
     }
 
+    // Конструктор для JPQL-проекции: только поля, которые нужны для отображения списка
+    public TransactionDTO(Long id, BigDecimal amount, String description, LocalDateTime date,
+                          Long accountId, String account, String currency,
+                          Long categoryId, String category) {
+        this.id = id;
+        this.amount = amount;
+        this.description = description;
+        this.note = description;
+        this.date = date;
+        this.accountId = accountId;
+        this.account = account;
+        this.currency = currency;
+        this.categoryId = categoryId;
+        this.category = category;
+    }
+
     // Геттеры и сеттеры
     public Long getId() {
         return id;
@@ -130,4 +148,12 @@ public class TransactionDTO {
         // Для совместимости также устанавливаем description
         this.description = note;
     }
-}
\ No newline at end of file
+
+    public Long getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(Long duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cashflip.dto;
+
+import java.util.List;
+
+public class TransactionPageDTO {
+    private List<TransactionDTO> items;
+    // Непрозрачный токен для запроса следующей страницы, null если страниц больше нет
+    private String nextCursor;
+    private boolean hasMore;
+
+    public TransactionPageDTO() {
+    }
+
+    public TransactionPageDTO(List<TransactionDTO> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<TransactionDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<TransactionDTO> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cashflip.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// Итоги по группе: income - сумма поступлений, expense - сумма расходов (отрицательная), total = income + expense
+public class TransactionSummaryDTO {
+    private String key;
+    private String label;
+    private BigDecimal income;
+    private BigDecimal expense;
+    private BigDecimal total;
+    private long count;
+
+    public TransactionSummaryDTO() {
+    }
+
+    public TransactionSummaryDTO(String key, String label, BigDecimal income, BigDecimal expense, long count) {
+        this.key = key;
+        this.label = label;
+        this.income = income != null ? income : BigDecimal.ZERO;
+        this.expense = expense != null ? expense : BigDecimal.ZERO;
+        this.total = this.income.add(this.expense);
+        this.count = count;
+    }
+
+    // Конструкторы для JPQL-проекций: группировка по категории или счету
+    public TransactionSummaryDTO(Long id, String label, BigDecimal income, BigDecimal expense, Long count) {
+        this(id != null ? id.toString() : null, label, income, expense, count != null ? count : 0);
+    }
+
+    // Группировка по дню
+    public TransactionSummaryDTO(LocalDate day, BigDecimal income, BigDecimal expense, Long count) {
+        this(day != null ? day.toString() : null, day != null ? day.toString() : null,
+             income, expense, count != null ? count : 0);
+    }
+
+    // Группировка по месяцу
+    public TransactionSummaryDTO(Integer year, Integer month, BigDecimal income, BigDecimal expense, Long count) {
+        this(YearMonth.of(year, month).toString(), YearMonth.of(year, month).toString(),
+             income, expense, count != null ? count : 0);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public BigDecimal getIncome() {
+        return income;
+    }
+
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+
+    public BigDecimal getExpense() {
+        return expense;
+    }
+
+    public void setExpense(BigDecimal expense) {
+        this.expense = expense;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
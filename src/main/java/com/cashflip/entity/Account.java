@@ -1,15 +1,23 @@
 package com.cashflip.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects;
 
+// Кэш второго уровня: счет читается почти в каждом запросе; баланс, измененный в обход сущности, вытесняется явно
 @Entity
 @Table(name = "accounts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accounts")
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_ids")
+    @TableGenerator(name = "account_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "accounts", allocationSize = IdGenerators.ACCOUNT_ALLOCATION)
     private Long id;
     
     private String name;
@@ -20,7 +28,22 @@ public class Account {
     private Integer iconCode;
     private Integer colorValue;
     
-    @ManyToOne
+    // Версия для оптимистичной блокировки при изменении баланса
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    
+    // Дневной индекс балансов построен по всей истории счета. Счета, созданные до появления индекса,
+    // получают false при добавлении колонки и перестраиваются при запуске (BalanceHistoryBackfillJob)
+    @Column(name = "history_indexed", nullable = false, columnDefinition = "bit default 0")
+    private boolean historyIndexed = true;
+    
+    // Месячные итоги пользователя построены с учетом всей истории счета; так же, как history_indexed,
+    // false у счетов, созданных до появления итогов (перестраиваются при запуске, MonthlyRollupRebuildJob)
+    @Column(name = "rollups_indexed", nullable = false, columnDefinition = "bit default 0")
+    private boolean rollupsIndexed = true;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -109,6 +132,30 @@ public class Account {
         this.colorValue = colorValue;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isHistoryIndexed() {
+        return historyIndexed;
+    }
+
+    public void setHistoryIndexed(boolean historyIndexed) {
+        this.historyIndexed = historyIndexed;
+    }
+
+    public boolean isRollupsIndexed() {
+        return rollupsIndexed;
+    }
+
+    public void setRollupsIndexed(boolean rollupsIndexed) {
+        this.rollupsIndexed = rollupsIndexed;
+    }
+
     public User getUser() {
         return user;
     }
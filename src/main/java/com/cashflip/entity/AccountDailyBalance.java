@@ -0,0 +1,99 @@
+package com.cashflip.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Дневной индекс балансов: изменение баланса счета за день.
+// Баланс на конец дня = сумма net_change всех дней до него включительно.
+@Entity
+@Table(name = "account_daily_balances",
+       uniqueConstraints = @UniqueConstraint(name = "uk_account_daily_balances_account_day",
+                                             columnNames = {"account_id", "day"}))
+public class AccountDailyBalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+    
+    @Column(nullable = false)
+    private LocalDate day;
+    
+    @Column(name = "net_change", nullable = false)
+    private BigDecimal netChange;
+    
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount;
+    
+    // Конструкторы
+    public AccountDailyBalance() {
+    }
+    
+    // Геттеры и сеттеры
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+    
+    public LocalDate getDay() {
+        return day;
+    }
+    
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+    
+    public BigDecimal getNetChange() {
+        return netChange;
+    }
+    
+    public void setNetChange(BigDecimal netChange) {
+        this.netChange = netChange;
+    }
+    
+    public Integer getTransactionCount() {
+        return transactionCount;
+    }
+    
+    public void setTransactionCount(Integer transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AccountDailyBalance that = (AccountDailyBalance) o;
+        return Objects.equals(accountId, that.accountId) &&
+               Objects.equals(day, that.day);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, day);
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountDailyBalance{" +
+               "accountId=" + accountId +
+               ", day=" + day +
+               ", netChange=" + netChange +
+               ", transactionCount=" + transactionCount +
+               '}';
+    }
+}
@@ -0,0 +1,121 @@
+package com.cashflip.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Снимок баланса счета: сумма всех транзакций до (asOfDate, lastTransactionId) включительно
+@Entity
+@Table(name = "balance_checkpoints")
+public class BalanceCheckpoint {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+    
+    private BigDecimal balance;
+    private LocalDateTime asOfDate;
+    private Long lastTransactionId;
+    private LocalDateTime createdAt;
+    
+    // Баланс на конец дня historyDay по дневному индексу: история балансов начинает отсчет отсюда, а не с начала.
+    // День берется раньше дня asOfDate, поэтому любая запись в него сбрасывает снимок целиком (deleteCoveringDate)
+    private LocalDate historyDay;
+    private BigDecimal historyBalance;
+    
+    // Конструкторы
+    public BalanceCheckpoint() {
+    }
+    
+    public BalanceCheckpoint(Long accountId, BigDecimal balance, LocalDateTime asOfDate,
+                             Long lastTransactionId, LocalDateTime createdAt) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.asOfDate = asOfDate;
+        this.lastTransactionId = lastTransactionId;
+        this.createdAt = createdAt;
+    }
+    
+    // Геттеры и сеттеры
+    public Long getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+    
+    public BigDecimal getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+    
+    public LocalDateTime getAsOfDate() {
+        return asOfDate;
+    }
+    
+    public void setAsOfDate(LocalDateTime asOfDate) {
+        this.asOfDate = asOfDate;
+    }
+    
+    public Long getLastTransactionId() {
+        return lastTransactionId;
+    }
+    
+    public void setLastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDate getHistoryDay() {
+        return historyDay;
+    }
+    
+    public void setHistoryDay(LocalDate historyDay) {
+        this.historyDay = historyDay;
+    }
+    
+    public BigDecimal getHistoryBalance() {
+        return historyBalance;
+    }
+    
+    public void setHistoryBalance(BigDecimal historyBalance) {
+        this.historyBalance = historyBalance;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BalanceCheckpoint that = (BalanceCheckpoint) o;
+        return Objects.equals(accountId, that.accountId) &&
+               Objects.equals(asOfDate, that.asOfDate) &&
+               Objects.equals(lastTransactionId, that.lastTransactionId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, asOfDate, lastTransactionId);
+    }
+    
+    @Override
+    public String toString() {
+        return "BalanceCheckpoint{" +
+               "accountId=" + accountId +
+               ", balance=" + balance +
+               ", asOfDate=" + asOfDate +
+               ", lastTransactionId=" + lastTransactionId +
+               '}';
+    }
+}
@@ -1,13 +1,20 @@
 package com.cashflip.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Objects;
 
 @Entity
 @Table(name = "categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "categories")
 public class Category {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Убедитесь, что ID генерируется правильно
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "category_ids")
+    @TableGenerator(name = "category_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "categories", allocationSize = IdGenerators.CATEGORY_ALLOCATION)
     private Long id;
     
     private String name;
@@ -15,7 +22,7 @@ public class Category {
     private String color;
     private Boolean isExpense; // true = расход, false = доход
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
     
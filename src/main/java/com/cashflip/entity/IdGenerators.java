@@ -0,0 +1,19 @@
+package com.cashflip.entity;
+
+// Общие параметры генераторов id. Id выдаются блоками из таблицы id_generators,
+// поэтому Hibernate знает id до INSERT и может объединять вставки в пакеты JDBC.
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    // Размер блока id на одно обращение к таблице генераторов
+    public static final int USER_ALLOCATION = 10;
+    public static final int ACCOUNT_ALLOCATION = 20;
+    public static final int CATEGORY_ALLOCATION = 20;
+    public static final int TRANSACTION_ALLOCATION = 100;
+
+    private IdGenerators() {
+    }
+}
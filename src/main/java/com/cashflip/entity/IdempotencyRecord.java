@@ -0,0 +1,141 @@
+package com.cashflip.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Сохраненный ответ на запрос с заголовком Idempotency-Key; повтор запроса получает его без повторного выполнения
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+    // userId:ключ
+    @Id
+    @Column(length = 300)
+    private String id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    // SHA-256 от метода, адреса и тела запроса: тот же ключ с другим запросом - ошибка клиента
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    private int status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Lob
+    private byte[] body;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    // Конструкторы
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, Long userId, String requestHash, int status, String contentType,
+                             byte[] body, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Геттеры и сеттеры
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IdempotencyRecord that = (IdempotencyRecord) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+               "id='" + id + '\'' +
+               ", status=" + status +
+               ", expiresAt=" + expiresAt +
+               '}';
+    }
+}
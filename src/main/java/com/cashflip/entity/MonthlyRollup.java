@@ -0,0 +1,162 @@
+package com.cashflip.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Месячные итоги по (пользователь, счет, категория, месяц). Транзакции без категории хранятся с category_id = 0.
+@Entity
+@Table(name = "monthly_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_monthly_rollups_user_account_category_month",
+                                             columnNames = {"user_id", "account_id", "category_id", "month"}))
+public class MonthlyRollup {
+    // Значение category_id для транзакций без категории
+    public static final long NO_CATEGORY = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+    
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+    
+    // Первый день месяца
+    @Column(nullable = false)
+    private LocalDate month;
+    
+    @Column(nullable = false)
+    private BigDecimal total;
+    
+    @Column(nullable = false)
+    private BigDecimal income;
+    
+    @Column(nullable = false)
+    private BigDecimal expense;
+    
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+    
+    // Конструкторы
+    public MonthlyRollup() {
+    }
+    
+    public MonthlyRollup(Long userId, Long accountId, Long categoryId, LocalDate month,
+                         BigDecimal income, BigDecimal expense, Long transactionCount) {
+        this.userId = userId;
+        this.accountId = accountId;
+        this.categoryId = categoryId;
+        this.month = month;
+        this.income = income;
+        this.expense = expense;
+        this.total = income.add(expense);
+        this.transactionCount = transactionCount;
+    }
+    
+    // Геттеры и сеттеры
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Long getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public LocalDate getMonth() {
+        return month;
+    }
+    
+    public void setMonth(LocalDate month) {
+        this.month = month;
+    }
+    
+    public BigDecimal getTotal() {
+        return total;
+    }
+    
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+    
+    public BigDecimal getIncome() {
+        return income;
+    }
+    
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+    
+    public BigDecimal getExpense() {
+        return expense;
+    }
+    
+    public void setExpense(BigDecimal expense) {
+        this.expense = expense;
+    }
+    
+    public Long getTransactionCount() {
+        return transactionCount;
+    }
+    
+    public void setTransactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MonthlyRollup that = (MonthlyRollup) o;
+        return Objects.equals(userId, that.userId) &&
+               Objects.equals(accountId, that.accountId) &&
+               Objects.equals(categoryId, that.categoryId) &&
+               Objects.equals(month, that.month);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, accountId, categoryId, month);
+    }
+    
+    @Override
+    public String toString() {
+        return "MonthlyRollup{" +
+               "userId=" + userId +
+               ", accountId=" + accountId +
+               ", categoryId=" + categoryId +
+               ", month=" + month +
+               ", total=" + total +
+               ", transactionCount=" + transactionCount +
+               '}';
+    }
+}
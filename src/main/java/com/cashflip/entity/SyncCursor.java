@@ -0,0 +1,79 @@
+package com.cashflip.entity;
+
+import jakarta.persistence.*;
+import java.util.Objects;
+
+// Счетчик версий изменений пользователя. Увеличивается UPDATE-ом в транзакции изменения, поэтому
+// строка заблокирована до коммита и версии одного пользователя фиксируются строго по порядку.
+@Entity
+@Table(name = "sync_cursors")
+public class SyncCursor {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Последняя выданная версия
+    @Column(nullable = false)
+    private Long version;
+
+    // Журнал до этой версии включительно удален: клиенту с более старым курсором нужна полная выгрузка
+    @Column(name = "pruned_version", nullable = false)
+    private Long prunedVersion;
+
+    // Конструкторы
+    public SyncCursor() {
+    }
+
+    public SyncCursor(Long userId, Long version, Long prunedVersion) {
+        this.userId = userId;
+        this.version = version;
+        this.prunedVersion = prunedVersion;
+    }
+
+    // Геттеры и сеттеры
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getPrunedVersion() {
+        return prunedVersion;
+    }
+
+    public void setPrunedVersion(Long prunedVersion) {
+        this.prunedVersion = prunedVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SyncCursor that = (SyncCursor) o;
+        return Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncCursor{" +
+               "userId=" + userId +
+               ", version=" + version +
+               ", prunedVersion=" + prunedVersion +
+               '}';
+    }
+}
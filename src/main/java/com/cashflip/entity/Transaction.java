@@ -7,28 +7,44 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // Постраничный вывод истории пользователя по (date desc, id desc)
+    @Index(name = "idx_transactions_user_date_id", columnList = "user_id, date, id"),
+    // Поиск дубликатов при вставке (см. DuplicateDetector)
+    @Index(name = "idx_transactions_account_fingerprint", columnList = "account_id, fingerprint")
+})
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_ids")
+    @TableGenerator(name = "transaction_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "transactions", allocationSize = IdGenerators.TRANSACTION_ALLOCATION)
     private Long id;
     
     private BigDecimal amount;
     private String description;
     private LocalDateTime date;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id")
     private Account account;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
     
+    // SHA-256 от (счет, дата, сумма, нормализованное описание)
+    @Column(length = 64)
+    private String fingerprint;
+    
+    // Id ранее записанной транзакции с тем же отпечатком (политика FLAG)
+    @Column(name = "duplicate_of")
+    private Long duplicateOf;
+    
     // Конструкторы
     public Transaction() {
     }
@@ -101,6 +117,22 @@ public class Transaction {
         this.user = user;
     }
     
+    public String getFingerprint() {
+        return fingerprint;
+    }
+    
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+    
+    public Long getDuplicateOf() {
+        return duplicateOf;
+    }
+    
+    public void setDuplicateOf(Long duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+    
     // Вспомогательные методы
     public Long getAccountId() {
         return account != null ? account.getId() : null;
@@ -127,6 +159,8 @@ public class Transaction {
         private Account account;
         private Category category;
         private User user;
+        private String fingerprint;
+        private Long duplicateOf;
         
         public TransactionBuilder id(Long id) {
             this.id = id;
@@ -163,8 +197,21 @@ public class Transaction {
             return this;
         }
         
+        public TransactionBuilder fingerprint(String fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+        
+        public TransactionBuilder duplicateOf(Long duplicateOf) {
+            this.duplicateOf = duplicateOf;
+            return this;
+        }
+        
         public Transaction build() {
-            return new Transaction(id, amount, description, date, account, category, user);
+            Transaction transaction = new Transaction(id, amount, description, date, account, category, user);
+            transaction.setFingerprint(fingerprint);
+            transaction.setDuplicateOf(duplicateOf);
+            return transaction;
         }
     }
     
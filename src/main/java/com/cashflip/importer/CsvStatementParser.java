@@ -0,0 +1,198 @@
+package com.cashflip.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// CSV с заголовком: колонки ищутся по названию (дата, сумма, описание, категория или приход/расход).
+// Без узнаваемого заголовка колонки берутся по порядку: дата, сумма, описание, категория.
+public class CsvStatementParser implements StatementParser {
+
+    // Запись в кавычках с переводами строк не может быть длиннее (защита от незакрытой кавычки)
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final Set<String> DATE_NAMES = Set.of("date", "дата", "дата операции", "дата платежа", "posted", "booking date");
+    private static final Set<String> AMOUNT_NAMES = Set.of("amount", "сумма", "сумма операции", "sum");
+    private static final Set<String> DESCRIPTION_NAMES = Set.of("description", "описание", "memo", "payee", "назначение",
+            "назначение платежа", "комментарий", "name");
+    private static final Set<String> CATEGORY_NAMES = Set.of("category", "категория");
+    private static final Set<String> DEBIT_NAMES = Set.of("debit", "расход", "списание");
+    private static final Set<String> CREDIT_NAMES = Set.of("credit", "приход", "поступление", "зачисление");
+
+    private int dateColumn = 0;
+    private int amountColumn = 1;
+    private int descriptionColumn = 2;
+    private int categoryColumn = 3;
+    private int debitColumn = -1;
+    private int creditColumn = -1;
+
+    @Override
+    public void parse(BufferedReader reader, Listener listener) throws IOException {
+        long lineNumber = 0;
+        char delimiter = 0;
+        boolean firstRecord = true;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            long recordLine = lineNumber;
+            if (firstRecord && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+
+            // Поле в кавычках может занимать несколько строк
+            StringBuilder record = new StringBuilder(line);
+            while (hasOpenQuote(record) && record.length() < MAX_RECORD_LENGTH) {
+                String next = reader.readLine();
+                if (next == null) {
+                    break;
+                }
+                lineNumber++;
+                record.append('\n').append(next);
+            }
+
+            if (delimiter == 0) {
+                delimiter = detectDelimiter(record);
+            }
+            List<String> fields = split(record, delimiter);
+
+            if (firstRecord) {
+                firstRecord = false;
+                if (readHeader(fields)) {
+                    continue;
+                }
+            }
+
+            try {
+                listener.onRecord(toRecord(fields));
+            } catch (IllegalArgumentException e) {
+                listener.onError(recordLine, e.getMessage());
+            }
+        }
+    }
+
+    private StatementRecord toRecord(List<String> fields) {
+        BigDecimal amount;
+        if (amountColumn >= 0) {
+            amount = StatementValues.parseAmount(field(fields, amountColumn));
+        } else {
+            String debit = StatementValues.emptyToNull(field(fields, debitColumn));
+            String credit = StatementValues.emptyToNull(field(fields, creditColumn));
+            if (debit == null && credit == null) {
+                throw new IllegalArgumentException("Пустая сумма");
+            }
+            amount = BigDecimal.ZERO;
+            if (credit != null) {
+                amount = amount.add(StatementValues.parseAmount(credit).abs());
+            }
+            if (debit != null) {
+                amount = amount.subtract(StatementValues.parseAmount(debit).abs());
+            }
+        }
+
+        return new StatementRecord(
+                StatementValues.parseDate(field(fields, dateColumn)),
+                amount,
+                StatementValues.emptyToNull(field(fields, descriptionColumn)),
+                StatementValues.emptyToNull(field(fields, categoryColumn)));
+    }
+
+    // Возвращает true, если строка - заголовок с узнаваемыми колонками
+    private boolean readHeader(List<String> fields) {
+        int date = -1, amount = -1, description = -1, category = -1, debit = -1, credit = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+            if (date < 0 && DATE_NAMES.contains(name)) {
+                date = i;
+            } else if (amount < 0 && AMOUNT_NAMES.contains(name)) {
+                amount = i;
+            } else if (description < 0 && DESCRIPTION_NAMES.contains(name)) {
+                description = i;
+            } else if (category < 0 && CATEGORY_NAMES.contains(name)) {
+                category = i;
+            } else if (debit < 0 && DEBIT_NAMES.contains(name)) {
+                debit = i;
+            } else if (credit < 0 && CREDIT_NAMES.contains(name)) {
+                credit = i;
+            }
+        }
+
+        boolean hasAmount = amount >= 0 || debit >= 0 || credit >= 0;
+        if (date < 0 || !hasAmount) {
+            return false;
+        }
+        dateColumn = date;
+        amountColumn = amount;
+        descriptionColumn = description;
+        categoryColumn = category;
+        debitColumn = debit;
+        creditColumn = credit;
+        return true;
+    }
+
+    private String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private char detectDelimiter(CharSequence line) {
+        int commas = 0, semicolons = 0, tabs = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',') commas++;
+            else if (c == ';') semicolons++;
+            else if (c == '\t') tabs++;
+        }
+        if (tabs > commas && tabs > semicolons) {
+            return '\t';
+        }
+        return semicolons >= commas && semicolons > 0 ? ';' : ',';
+    }
+
+    private boolean hasOpenQuote(CharSequence record) {
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 != 0;
+    }
+
+    // Разбор по RFC 4180: поля в кавычках, "" внутри кавычек - сама кавычка
+    private List<String> split(CharSequence record, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,132 @@
+package com.cashflip.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// OFX 1.x (SGML, теги без закрытия) и 2.x (XML). Файл читается посимвольно по тегам,
+// в памяти держатся только поля текущей операции <STMTTRN>.
+public class OfxStatementParser implements StatementParser {
+
+    // Значение тега длиннее этого обрезается (защита от файла без разметки)
+    private static final int MAX_VALUE_LENGTH = 64 * 1024;
+
+    @Override
+    public void parse(BufferedReader reader, Listener listener) throws IOException {
+        long line = 1;
+        long transactionLine = 0;
+        Map<String, String> transaction = null;
+        String currentTag = null;
+        StringBuilder text = new StringBuilder();
+        StringBuilder tag = new StringBuilder();
+        boolean inTag = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                line++;
+            }
+            if (inTag) {
+                if (c == '>') {
+                    inTag = false;
+                    String name = tag.toString().trim().toUpperCase(Locale.ROOT);
+                    tag.setLength(0);
+
+                    if (name.equals("STMTTRN")) {
+                        transaction = new HashMap<>();
+                        transactionLine = line;
+                        currentTag = null;
+                    } else if (name.equals("/STMTTRN")) {
+                        if (transaction != null) {
+                            emit(transaction, transactionLine, listener);
+                        }
+                        transaction = null;
+                        currentTag = null;
+                    } else if (name.startsWith("/") || name.startsWith("?") || name.startsWith("!")) {
+                        currentTag = null;
+                    } else {
+                        currentTag = name;
+                    }
+                } else if (tag.length() < 256) {
+                    tag.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == '<') {
+                // Текст до тега - значение предыдущего открытого тега
+                if (transaction != null && currentTag != null) {
+                    String value = decode(text.toString().trim());
+                    if (!value.isEmpty()) {
+                        transaction.putIfAbsent(currentTag, value);
+                    }
+                }
+                text.setLength(0);
+                inTag = true;
+            } else if (text.length() < MAX_VALUE_LENGTH) {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private void emit(Map<String, String> fields, long line, Listener listener) {
+        try {
+            String name = fields.get("NAME");
+            String memo = fields.get("MEMO");
+            String description = name;
+            if (name == null) {
+                description = memo;
+            } else if (memo != null && !memo.equalsIgnoreCase(name)) {
+                description = name + " (" + memo + ")";
+            }
+
+            listener.onRecord(new StatementRecord(
+                    parseOfxDate(fields.get("DTPOSTED")),
+                    StatementValues.parseAmount(fields.get("TRNAMT")),
+                    description,
+                    null));
+        } catch (IllegalArgumentException e) {
+            listener.onError(line, e.getMessage());
+        }
+    }
+
+    // YYYYMMDD[HHMMSS[.XXX]][[+-]ZZ[:TZ]]; часовой пояс отбрасывается
+    private LocalDateTime parseOfxDate(String value) {
+        if (value == null || value.length() < 8) {
+            throw new IllegalArgumentException("Некорректная дата: " + value);
+        }
+        try {
+            LocalDate date = LocalDate.of(
+                    Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)),
+                    Integer.parseInt(value.substring(6, 8)));
+            LocalTime time = LocalTime.MIDNIGHT;
+            if (value.length() >= 14 && Character.isDigit(value.charAt(8))) {
+                time = LocalTime.of(
+                        Integer.parseInt(value.substring(8, 10)),
+                        Integer.parseInt(value.substring(10, 12)),
+                        Integer.parseInt(value.substring(12, 14)));
+            }
+            return date.atTime(time);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректная дата: " + value);
+        }
+    }
+
+    private String decode(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&");
+    }
+}
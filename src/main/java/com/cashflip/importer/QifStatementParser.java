@@ -0,0 +1,98 @@
+package com.cashflip.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// QIF: одна операция - набор строк с кодом в первом символе (D - дата, T/U - сумма, P - получатель,
+// M - комментарий, L - категория), запись заканчивается строкой "^"
+public class QifStatementParser implements StatementParser {
+
+    // Даты в QIF обычно американские: M/d/yyyy или M/d'yy
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("M/d/yyyy"),
+            DateTimeFormatter.ofPattern("M/d/yy"),
+            DateTimeFormatter.ofPattern("M-d-yyyy"),
+            DateTimeFormatter.ofPattern("d.M.yyyy"),
+            DateTimeFormatter.ISO_LOCAL_DATE);
+
+    @Override
+    public void parse(BufferedReader reader, Listener listener) throws IOException {
+        long lineNumber = 0;
+        long recordLine = 0;
+        String date = null, amount = null, payee = null, memo = null, category = null;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("!")) {
+                continue;
+            }
+            if (recordLine == 0) {
+                recordLine = lineNumber;
+            }
+
+            char code = line.charAt(0);
+            String value = line.substring(1).trim();
+            switch (code) {
+                case 'D' -> date = value;
+                case 'T', 'U' -> amount = amount == null ? value : amount;
+                case 'P' -> payee = value;
+                case 'M' -> memo = value;
+                case 'L' -> category = value.startsWith("[") ? null : value;
+                case '^' -> {
+                    if (date != null || amount != null) {
+                        emit(date, amount, payee, memo, category, recordLine, listener);
+                    }
+                    date = amount = payee = memo = category = null;
+                    recordLine = 0;
+                }
+                default -> {
+                    // Остальные поля (номер чека, разбиение по категориям) не используются
+                }
+            }
+        }
+        if (date != null || amount != null) {
+            emit(date, amount, payee, memo, category, recordLine, listener);
+        }
+    }
+
+    private void emit(String date, String amount, String payee, String memo, String category,
+                      long line, Listener listener) {
+        try {
+            String description = payee != null && !payee.isEmpty() ? payee : memo;
+            if (category != null && category.contains(":")) {
+                // Подкатегория "Еда:Кафе" - берем верхний уровень
+                category = category.substring(0, category.indexOf(':'));
+            }
+            listener.onRecord(new StatementRecord(
+                    parseQifDate(date),
+                    StatementValues.parseAmount(amount),
+                    StatementValues.emptyToNull(description),
+                    StatementValues.emptyToNull(category)));
+        } catch (IllegalArgumentException e) {
+            listener.onError(line, e.getMessage());
+        }
+    }
+
+    private LocalDateTime parseQifDate(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Пустая дата");
+        }
+        // 1/5'24 -> 1/5/24
+        String date = value.trim().replace('\'', '/').replace(' ', '0');
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                LocalDate parsed = LocalDate.parse(date, format);
+                return parsed.atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // пробуем следующий формат
+            }
+        }
+        throw new IllegalArgumentException("Некорректная дата: " + value);
+    }
+}
@@ -0,0 +1,48 @@
+package com.cashflip.importer;
+
+import java.util.Locale;
+
+// Поддерживаемые форматы банковских выписок
+public enum StatementFormat {
+    CSV,
+    OFX,
+    QIF;
+
+    public static StatementFormat fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный формат выписки: " + name);
+        }
+    }
+
+    // Формат по заголовку Content-Type, null если по нему не понять
+    public static StatementFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("csv")) {
+            return CSV;
+        }
+        if (type.contains("ofx")) {
+            return OFX;
+        }
+        if (type.contains("qif")) {
+            return QIF;
+        }
+        return null;
+    }
+
+    // Формат по началу файла
+    public static StatementFormat detect(String head) {
+        String start = head.stripLeading();
+        if (start.startsWith("OFXHEADER") || start.startsWith("<?xml") || start.toUpperCase(Locale.ROOT).contains("<OFX>")) {
+            return OFX;
+        }
+        if (start.startsWith("!")) {
+            return QIF;
+        }
+        return CSV;
+    }
+}
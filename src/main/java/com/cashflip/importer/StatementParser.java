@@ -0,0 +1,28 @@
+package com.cashflip.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// Потоковый разбор выписки: записи отдаются по одной, файл целиком в памяти не держится
+public interface StatementParser {
+
+    interface Listener {
+        void onRecord(StatementRecord record);
+
+        // Строку или запись не удалось разобрать; разбор продолжается
+        void onError(long line, String message);
+    }
+
+    void parse(BufferedReader reader, Listener listener) throws IOException;
+
+    static StatementParser forFormat(StatementFormat format) {
+        switch (format) {
+            case OFX:
+                return new OfxStatementParser();
+            case QIF:
+                return new QifStatementParser();
+            default:
+                return new CsvStatementParser();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.cashflip.importer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Одна операция из выписки; category может быть null
+public record StatementRecord(LocalDateTime date, BigDecimal amount, String description, String category) {
+}
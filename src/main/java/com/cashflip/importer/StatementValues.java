@@ -0,0 +1,91 @@
+package com.cashflip.importer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// Разбор сумм и дат в том виде, в каком их выгружают банки
+final class StatementValues {
+
+    private static final List<DateTimeFormatter> DATE_TIME_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss"),
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd.MM.yyyy"),
+            DateTimeFormatter.ofPattern("d.M.yyyy"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("yyyyMMdd"));
+
+    private StatementValues() {
+    }
+
+    // "1 234,56", "-1234.56", "1,234.56", "1,234,567", "+10" -> BigDecimal
+    static BigDecimal parseAmount(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Пустая сумма");
+        }
+        String amount = value.trim()
+                .replace(" ", "")
+                .replace("\u00A0", "")
+                .replace("'", "");
+        if (amount.startsWith("+")) {
+            amount = amount.substring(1);
+        }
+        int comma = amount.lastIndexOf(',');
+        int dot = amount.lastIndexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            // Десятичный разделитель - тот, что стоит правее
+            amount = comma > dot
+                    ? amount.replace(".", "").replace(',', '.')
+                    : amount.replace(",", "");
+        } else if (comma >= 0) {
+            // Несколько запятых - разделители разрядов, одна - десятичная
+            amount = comma != amount.indexOf(',') ? amount.replace(",", "") : amount.replace(',', '.');
+        } else if (dot >= 0 && dot != amount.indexOf('.')) {
+            amount = amount.replace(".", "");
+        }
+        try {
+            return new BigDecimal(amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная сумма: " + value);
+        }
+    }
+
+    static LocalDateTime parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Пустая дата");
+        }
+        String date = value.trim();
+        for (DateTimeFormatter format : DATE_TIME_FORMATS) {
+            try {
+                return LocalDateTime.parse(date, format);
+            } catch (DateTimeParseException ignored) {
+                // пробуем следующий формат
+            }
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(date, format).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // пробуем следующий формат
+            }
+        }
+        throw new IllegalArgumentException("Некорректная дата: " + value);
+    }
+
+    static String emptyToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
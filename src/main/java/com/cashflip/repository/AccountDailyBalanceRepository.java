@@ -0,0 +1,52 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.AccountDailyBalance;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AccountDailyBalanceRepository extends JpaRepository<AccountDailyBalance, Long> {
+    List<AccountDailyBalance> findByAccountIdAndDayBetweenOrderByDay(Long accountId, LocalDate from, LocalDate to);
+
+    // Баланс на начало дня: сумма изменений за все предыдущие дни
+    @Query("SELECT COALESCE(SUM(d.netChange), 0) FROM AccountDailyBalance d WHERE d.accountId = :accountId AND d.day < :day")
+    BigDecimal sumNetChangeBefore(Long accountId, LocalDate day);
+
+    // Сумма изменений за дни (after, upTo]: отсчет баланса от снимка (BalanceCheckpoint.historyDay)
+    @Query("SELECT COALESCE(SUM(d.netChange), 0) FROM AccountDailyBalance d WHERE d.accountId = :accountId " +
+           "AND d.day > :after AND d.day <= :upTo")
+    BigDecimal sumNetChangeBetween(Long accountId, LocalDate after, LocalDate upTo);
+
+    // Затронутая таблица указана явно: иначе Hibernate сбрасывает весь кэш второго уровня
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "account_daily_balances"))
+    @Query(value = "INSERT INTO account_daily_balances (account_id, day, net_change, transaction_count) " +
+                   "VALUES (:accountId, :day, :delta, :count) ON DUPLICATE KEY UPDATE " +
+                   "net_change = net_change + VALUES(net_change), " +
+                   "transaction_count = transaction_count + VALUES(transaction_count)",
+           nativeQuery = true)
+    void addDelta(Long accountId, LocalDate day, BigDecimal delta, int count);
+
+    // Построение индекса счета по таблице транзакций; строки счета перед ним удаляются (BalanceHistoryService.rebuild)
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "account_daily_balances"))
+    @Query(value = "INSERT INTO account_daily_balances (account_id, day, net_change, transaction_count) " +
+                   "SELECT account_id, CAST(date AS DATE), SUM(amount), COUNT(*) FROM transactions " +
+                   "WHERE account_id = :accountId AND date IS NOT NULL AND amount IS NOT NULL " +
+                   "GROUP BY account_id, CAST(date AS DATE)",
+           nativeQuery = true)
+    int rebuildForAccount(Long accountId);
+
+    @Modifying
+    @Query("DELETE FROM AccountDailyBalance d WHERE d.accountId = :accountId")
+    int deleteByAccountId(Long accountId);
+}
@@ -2,9 +2,16 @@ package com.cashflip.repository;
 
 import com.cashflip.entity.Account;
 import com.cashflip.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +21,58 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     
     // Добавляем новый метод для проверки принадлежности счета пользователю
     Optional<Account> findByIdAndUser(Long id, User user);
+
+    // Пространство запроса без сущностей: UPDATE не сбрасывает весь регион кэша счетов,
+    // измененный счет вытесняет вызывающий сервис (см. EntityCacheEvictor)
+    String BALANCE_QUERY_SPACE = "account_balances";
+
+    // Атомарное изменение баланса в БД без чтения сущности (версия увеличивается для оптимистичных писателей)
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = BALANCE_QUERY_SPACE))
+    @Query(value = "UPDATE accounts SET balance = COALESCE(balance, 0) + :delta, version = version + 1 WHERE id = :id",
+           nativeQuery = true)
+    int addToBalance(Long id, BigDecimal delta);
+
+    // Блокирует строки счетов пользователя в порядке id (SELECT ... FOR UPDATE) и возвращает их id:
+    // чужие и несуществующие счета в результат не попадают
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(value = "SELECT id FROM accounts WHERE user_id = :userId AND id IN (:ids) ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Long> lockOwned(Long userId, Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(value = "SELECT id FROM accounts WHERE id = :id FOR UPDATE", nativeQuery = true)
+    List<Long> lockById(Long id);
+
+    // Все счета пользователя в порядке id (пересчет балансов)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(value = "SELECT id FROM accounts WHERE user_id = :userId ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByUserId(Long userId);
+
+    // Отметка о построенном дневном индексе; версия не меняется - это не изменение счета для клиента
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = BALANCE_QUERY_SPACE))
+    @Query(value = "UPDATE accounts SET history_indexed = TRUE WHERE id = :id", nativeQuery = true)
+    int markHistoryIndexed(Long id);
+
+    @Query("SELECT a.id FROM Account a WHERE a.historyIndexed = false")
+    List<Long> findIdsWithoutHistoryIndex();
+
+    // Отметка о построенных месячных итогах: итоги перестраиваются для всех счетов пользователя сразу
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = BALANCE_QUERY_SPACE))
+    @Query(value = "UPDATE accounts SET rollups_indexed = TRUE WHERE user_id = :userId", nativeQuery = true)
+    int markRollupsIndexed(Long userId);
+
+    @Query("SELECT DISTINCT a.user.id FROM Account a WHERE a.rollupsIndexed = false")
+    List<Long> findUserIdsWithoutRollupIndex();
+
+    boolean existsByUserIdAndRollupsIndexedFalse(Long userId);
+
+    // Выставляет балансы всех счетов пользователя равными сумме их транзакций одним UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = COALESCE(" +
+           "(SELECT SUM(t.amount) FROM Transaction t WHERE t.account.id = a.id), 0) " +
+           "WHERE a.user.id = :userId")
+    int resetBalancesFromTransactions(Long userId);
 }
\ No newline at end of file
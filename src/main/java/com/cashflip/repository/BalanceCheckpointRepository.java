@@ -0,0 +1,18 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    // Снимок перестает быть верным, если изменена транзакция, которую он уже учел
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM BalanceCheckpoint c WHERE c.accountId = :accountId AND c.asOfDate >= :date")
+    int deleteCoveringDate(Long accountId, LocalDateTime date);
+}
@@ -0,0 +1,46 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.ChangeLogEntry;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Пакетная запись журнала изменений: пакет транзакций или импорт дает столько же записей журнала
+@Repository
+public class ChangeLogJdbcRepository {
+
+    private static final String INSERT =
+            "INSERT INTO change_log (user_id, version, entity_type, entity_id, operation, changed_at) " +
+            "VALUES (:userId, :version, :entityType, :entityId, :operation, :changedAt)";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ChangeLogJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertBatch(List<ChangeLogEntry> entries) {
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<ChangeLogEntry> chunk = entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+
+            SqlParameterSource[] batch = new SqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                ChangeLogEntry entry = chunk.get(i);
+                batch[i] = new MapSqlParameterSource()
+                        .addValue("userId", entry.getUserId())
+                        .addValue("version", entry.getVersion())
+                        .addValue("entityType", entry.getEntityType().name())
+                        .addValue("entityId", entry.getEntityId())
+                        .addValue("operation", entry.getOperation().name())
+                        .addValue("changedAt", Timestamp.valueOf(entry.getChangedAt()));
+            }
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+    }
+}
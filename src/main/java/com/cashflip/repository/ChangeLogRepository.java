@@ -0,0 +1,23 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.ChangeLogEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    // Изменения пользователя после курсора по индексу (user_id, version)
+    @Query("SELECT e FROM ChangeLogEntry e WHERE e.userId = :userId AND e.version > :version ORDER BY e.version, e.id")
+    List<ChangeLogEntry> findAfter(Long userId, Long version, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM ChangeLogEntry e WHERE e.changedAt < :threshold")
+    int deleteOlderThan(LocalDateTime threshold);
+}
@@ -0,0 +1,56 @@
+package com.cashflip.repository;
+
+import com.cashflip.dto.TransactionSummaryDTO;
+import com.cashflip.entity.MonthlyRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, Long> {
+
+    List<MonthlyRollup> findByUserId(Long userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "monthly_rollups"))
+    @Query(value = "INSERT INTO monthly_rollups (user_id, account_id, category_id, month, total, income, expense, transaction_count) " +
+                   "VALUES (:userId, :accountId, :categoryId, :month, :income + :expense, :income, :expense, :count) " +
+                   "ON DUPLICATE KEY UPDATE total = total + VALUES(total), income = income + VALUES(income), " +
+                   "expense = expense + VALUES(expense), transaction_count = transaction_count + VALUES(transaction_count)",
+           nativeQuery = true)
+    void addDelta(Long userId, Long accountId, Long categoryId, LocalDate month,
+                  BigDecimal income, BigDecimal expense, long count);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyRollup r WHERE r.userId = :userId")
+    int deleteByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyRollup r WHERE r.accountId = :accountId")
+    int deleteByAccountId(Long accountId);
+
+    // Итоги за месяцы [fromMonth, toMonth] по месячным итогам вместо таблицы транзакций
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(c.id, c.name, SUM(r.income), SUM(r.expense), SUM(r.transactionCount)) " +
+           "FROM MonthlyRollup r LEFT JOIN Category c ON c.id = r.categoryId " +
+           "WHERE r.userId = :userId AND r.month BETWEEN :fromMonth AND :toMonth GROUP BY c.id, c.name HAVING SUM(r.transactionCount) > 0")
+    List<TransactionSummaryDTO> summarizeByCategory(Long userId, LocalDate fromMonth, LocalDate toMonth);
+
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(a.id, a.name, SUM(r.income), SUM(r.expense), SUM(r.transactionCount)) " +
+           "FROM MonthlyRollup r LEFT JOIN Account a ON a.id = r.accountId " +
+           "WHERE r.userId = :userId AND r.month BETWEEN :fromMonth AND :toMonth GROUP BY a.id, a.name HAVING SUM(r.transactionCount) > 0")
+    List<TransactionSummaryDTO> summarizeByAccount(Long userId, LocalDate fromMonth, LocalDate toMonth);
+
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(year(r.month), month(r.month), " +
+           "SUM(r.income), SUM(r.expense), SUM(r.transactionCount)) " +
+           "FROM MonthlyRollup r WHERE r.userId = :userId AND r.month BETWEEN :fromMonth AND :toMonth " +
+           "GROUP BY year(r.month), month(r.month) HAVING SUM(r.transactionCount) > 0 ORDER BY year(r.month), month(r.month)")
+    List<TransactionSummaryDTO> summarizeByMonth(Long userId, LocalDate fromMonth, LocalDate toMonth);
+}
@@ -0,0 +1,40 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.SyncCursor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface SyncCursorRepository extends JpaRepository<SyncCursor, Long> {
+
+    // Следующая версия пользователя; строка остается заблокированной до конца транзакции
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sync_cursors"))
+    @Query(value = "INSERT INTO sync_cursors (user_id, version, pruned_version) VALUES (:userId, 1, 0) " +
+                   "ON DUPLICATE KEY UPDATE version = version + 1",
+           nativeQuery = true)
+    void increment(Long userId);
+
+    @Query("SELECT c.version FROM SyncCursor c WHERE c.userId = :userId")
+    Optional<Long> findVersion(Long userId);
+
+    @Query("SELECT c.prunedVersion FROM SyncCursor c WHERE c.userId = :userId")
+    Optional<Long> findPrunedVersion(Long userId);
+
+    // Запоминает, до какой версии журнал будет удален записями старше threshold
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sync_cursors"))
+    @Query(value = "UPDATE sync_cursors c JOIN (SELECT user_id, MAX(version) AS version FROM change_log " +
+                   "WHERE changed_at < :threshold GROUP BY user_id) p ON p.user_id = c.user_id " +
+                   "SET c.pruned_version = GREATEST(c.pruned_version, p.version)",
+           nativeQuery = true)
+    int markPruned(LocalDateTime threshold);
+}
@@ -0,0 +1,170 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Запись транзакций в обход persistence context, когда сущности читать не нужно
+@Repository
+public class TransactionJdbcRepository {
+
+    // Принадлежность категории пользователю проверяется в самом INSERT: чужая категория превратится в NULL.
+    // Счет уже проверен и заблокирован вызывающим (BalanceService.lockAccounts)
+    private static final String INSERT_WITH_CATEGORY =
+            "INSERT INTO transactions (id, amount, description, date, account_id, category_id, user_id, " +
+            "fingerprint, duplicate_of) " +
+            "VALUES (:id, :amount, :description, :date, :accountId, " +
+            "(SELECT MIN(c.id) FROM categories c WHERE c.user_id = :userId " +
+            "AND ((:categoryId IS NOT NULL AND c.id = :categoryId) " +
+            "OR (:categoryId IS NULL AND :categoryName IS NOT NULL AND c.name = :categoryName))), " +
+            ":userId, :fingerprint, :duplicateOf)";
+
+    private static final String INSERT =
+            "INSERT INTO transactions (id, amount, description, date, account_id, category_id, user_id, " +
+            "fingerprint, duplicate_of) " +
+            "VALUES (:id, :amount, :description, :date, :accountId, :categoryId, :userId, :fingerprint, :duplicateOf)";
+
+    // Самая ранняя транзакция пользователя на счете с каждым из отпечатков
+    private static final String FIND_BY_FINGERPRINTS =
+            "SELECT fingerprint, MIN(id) AS id FROM transactions " +
+            "WHERE account_id = :accountId AND user_id = :userId AND fingerprint IN (:fingerprints) " +
+            "GROUP BY fingerprint";
+
+    private static final String SELECT_FOR_FINGERPRINTS =
+            "SELECT id, amount, description, date, fingerprint FROM transactions WHERE account_id = :accountId";
+
+    private static final String UPDATE_FINGERPRINT =
+            "UPDATE transactions SET fingerprint = :fingerprint WHERE id = :id";
+
+    // Строк в одном пакете JDBC
+    private static final int BATCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TransactionJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Id берется из того же генератора, что и у JPA, чтобы вставки в обход Hibernate не пересекались с ним
+    public Long nextId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Generator generator = session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Transaction.class)
+                .getGenerator();
+        return ((Number) ((IdentifierGenerator) generator).generate(session, null)).longValue();
+    }
+
+    // Возвращает id новой транзакции. Принадлежность счета пользователю должна быть уже проверена
+    public Long insertWithCategory(Long userId, Long accountId, Long categoryId, String categoryName,
+                            BigDecimal amount, String description, LocalDateTime date,
+                            String fingerprint, Long duplicateOf) {
+        Long id = nextId();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("userId", userId)
+                .addValue("accountId", accountId)
+                .addValue("categoryId", categoryId, Types.BIGINT)
+                .addValue("categoryName", categoryName, Types.VARCHAR)
+                .addValue("amount", amount, Types.DECIMAL)
+                .addValue("description", description, Types.VARCHAR)
+                .addValue("date", date != null ? Timestamp.valueOf(date) : null, Types.TIMESTAMP)
+                .addValue("fingerprint", fingerprint, Types.VARCHAR)
+                .addValue("duplicateOf", duplicateOf, Types.BIGINT);
+
+        jdbcTemplate.update(INSERT_WITH_CATEGORY, params);
+        return id;
+    }
+
+    // Пакетная вставка уже проверенных транзакций; транзакциям без id выданные id проставляются в переданные объекты
+    public void insertBatch(List<Transaction> transactions) {
+        for (int from = 0; from < transactions.size(); from += BATCH_SIZE) {
+            List<Transaction> chunk = transactions.subList(from, Math.min(from + BATCH_SIZE, transactions.size()));
+
+            SqlParameterSource[] batch = new SqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                Transaction transaction = chunk.get(i);
+                if (transaction.getId() == null) {
+                    transaction.setId(nextId());
+                }
+                batch[i] = new MapSqlParameterSource()
+                        .addValue("id", transaction.getId(), Types.BIGINT)
+                        .addValue("amount", transaction.getAmount(), Types.DECIMAL)
+                        .addValue("description", transaction.getDescription(), Types.VARCHAR)
+                        .addValue("date", transaction.getDate() != null ? Timestamp.valueOf(transaction.getDate()) : null,
+                                Types.TIMESTAMP)
+                        .addValue("accountId", transaction.getAccountId(), Types.BIGINT)
+                        .addValue("categoryId", transaction.getCategory() != null ? transaction.getCategory().getId() : null,
+                                Types.BIGINT)
+                        .addValue("userId", transaction.getUser().getId(), Types.BIGINT)
+                        .addValue("fingerprint", transaction.getFingerprint(), Types.VARCHAR)
+                        .addValue("duplicateOf", transaction.getDuplicateOf(), Types.BIGINT);
+            }
+
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+    }
+
+    // Отпечаток -> id уже записанной транзакции пользователя на счете
+    public Map<String, Long> findIdsByFingerprints(Long userId, Long accountId, Collection<String> fingerprints) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> all = new ArrayList<>(fingerprints);
+        for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("userId", userId)
+                    .addValue("accountId", accountId)
+                    .addValue("fingerprints", all.subList(from, Math.min(from + BATCH_SIZE, all.size())));
+            jdbcTemplate.query(FIND_BY_FINGERPRINTS, params,
+                    (RowCallbackHandler) rs -> ids.put(rs.getString("fingerprint"), rs.getLong("id")));
+        }
+        return ids;
+    }
+
+    // Проход по транзакциям счета без загрузки сущностей (для построения фильтра дубликатов)
+    public void forEachFingerprintSource(Long accountId, FingerprintSourceHandler handler) {
+        jdbcTemplate.query(SELECT_FOR_FINGERPRINTS, Map.of("accountId", accountId), (RowCallbackHandler) rs -> {
+            Timestamp date = rs.getTimestamp("date");
+            handler.handle(rs.getLong("id"), rs.getBigDecimal("amount"), rs.getString("description"),
+                    date != null ? date.toLocalDateTime() : null, rs.getString("fingerprint"));
+        });
+    }
+
+    // Дозаполняет отпечатки строк, записанных до их появления
+    public void updateFingerprints(Map<Long, String> fingerprints) {
+        List<SqlParameterSource> batch = new ArrayList<>(fingerprints.size());
+        for (Map.Entry<Long, String> entry : fingerprints.entrySet()) {
+            batch.add(new MapSqlParameterSource()
+                    .addValue("id", entry.getKey())
+                    .addValue("fingerprint", entry.getValue()));
+        }
+        for (int from = 0; from < batch.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPDATE_FINGERPRINT,
+                    batch.subList(from, Math.min(from + BATCH_SIZE, batch.size())).toArray(new SqlParameterSource[0]));
+        }
+    }
+
+    @FunctionalInterface
+    public interface FingerprintSourceHandler {
+        void handle(Long id, BigDecimal amount, String description, LocalDateTime date, String fingerprint);
+    }
+}
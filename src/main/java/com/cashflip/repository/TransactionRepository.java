@@ -1,20 +1,184 @@
 package com.cashflip.repository;
 
+import com.cashflip.dto.TransactionDTO;
+import com.cashflip.dto.TransactionSummaryDTO;
 import com.cashflip.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByUserIdOrderByDateDesc(Long userId);
     List<Transaction> findByUserIdAndDateBetweenOrderByDateDesc(Long userId, LocalDateTime start, LocalDateTime end);
-    
+
+    // Списки для чтения: проекция сразу в TransactionDTO одним запросом, без загрузки сущностей
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDTO> findDTOsByUserId(Long userId);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.id = :id")
+    Optional<TransactionDTO> findDTOById(Long id);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.id IN :ids")
+    List<TransactionDTO> findDTOsByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDTO> findDTOsByUserIdAndDateBetween(Long userId, LocalDateTime start, LocalDateTime end);
+
+    // Keyset-пагинация по индексу (user_id, date, id): первая страница и страницы после курсора.
+    // Транзакции без даты идут в конце списка.
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId ORDER BY t.date DESC NULLS LAST, t.id DESC")
+    List<TransactionDTO> findFirstPage(Long userId, Limit limit);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND (t.date < :date OR (t.date = :date AND t.id < :id) OR t.date IS NULL) " +
+           "ORDER BY t.date DESC NULLS LAST, t.id DESC")
+    List<TransactionDTO> findPageAfter(Long userId, LocalDateTime date, Long id, Limit limit);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.date IS NULL AND t.id < :id ORDER BY t.id DESC")
+    List<TransactionDTO> findUndatedPageAfter(Long userId, Long id, Limit limit);
+
+    // То же в пределах периода [start, end]
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDTO> findFirstPageBetween(Long userId, LocalDateTime start, LocalDateTime end, Limit limit);
+
+    @Query("SELECT new com.cashflip.dto.TransactionDTO(t.id, t.amount, t.description, t.date, " +
+           "a.id, a.name, a.currency, c.id, c.name) FROM Transaction t LEFT JOIN t.account a LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end " +
+           "AND (t.date < :date OR (t.date = :date AND t.id < :id)) ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDTO> findPageBetweenAfter(Long userId, LocalDateTime start, LocalDateTime end,
+                                              LocalDateTime date, Long id, Limit limit);
+
+    // Итоги за период [start, end], сгруппированные на стороне БД
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(c.id, c.name, " +
+           "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END), " +
+           "SUM(CASE WHEN t.amount < 0 THEN t.amount ELSE 0 END), COUNT(t)) " +
+           "FROM Transaction t LEFT JOIN t.category c " +
+           "WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end GROUP BY c.id, c.name")
+    List<TransactionSummaryDTO> summarizeByCategory(Long userId, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(a.id, a.name, " +
+           "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END), " +
+           "SUM(CASE WHEN t.amount < 0 THEN t.amount ELSE 0 END), COUNT(t)) " +
+           "FROM Transaction t LEFT JOIN t.account a " +
+           "WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end GROUP BY a.id, a.name")
+    List<TransactionSummaryDTO> summarizeByAccount(Long userId, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(cast(t.date as LocalDate), " +
+           "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END), " +
+           "SUM(CASE WHEN t.amount < 0 THEN t.amount ELSE 0 END), COUNT(t)) " +
+           "FROM Transaction t WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end " +
+           "GROUP BY cast(t.date as LocalDate) ORDER BY cast(t.date as LocalDate)")
+    List<TransactionSummaryDTO> summarizeByDay(Long userId, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT new com.cashflip.dto.TransactionSummaryDTO(year(t.date), month(t.date), " +
+           "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END), " +
+           "SUM(CASE WHEN t.amount < 0 THEN t.amount ELSE 0 END), COUNT(t)) " +
+           "FROM Transaction t WHERE t.user.id = :userId AND t.date BETWEEN :start AND :end " +
+           "GROUP BY year(t.date), month(t.date) ORDER BY year(t.date), month(t.date)")
+    List<TransactionSummaryDTO> summarizeByMonth(Long userId, LocalDateTime start, LocalDateTime end);
+
+    // Месячные итоги пользователя по (счет, категория, месяц) для перестроения monthly_rollups
+    @Query("SELECT t.account.id AS accountId, c.id AS categoryId, " +
+           "year(t.date) AS year, month(t.date) AS month, " +
+           "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END) AS income, " +
+           "SUM(CASE WHEN t.amount < 0 THEN t.amount ELSE 0 END) AS expense, COUNT(t) AS count " +
+           "FROM Transaction t LEFT JOIN t.category c WHERE t.user.id = :userId AND t.date IS NOT NULL " +
+           "AND t.amount IS NOT NULL AND t.account IS NOT NULL GROUP BY t.account.id, c.id, year(t.date), month(t.date)")
+    List<MonthlyTotal> summarizeMonthlyByAccountAndCategory(Long userId);
+
+    interface MonthlyTotal {
+        Long getAccountId();
+        Long getCategoryId();
+        Integer getYear();
+        Integer getMonth();
+        BigDecimal getIncome();
+        BigDecimal getExpense();
+        Long getCount();
+    }
+
     @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId AND t.category.id = :categoryId")
     List<Transaction> findByUserIdAndCategoryId(Long userId, Long categoryId);
 
     List<Transaction> findByAccount_Id(Long accountId);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.account.id = :accountId")
+    List<Long> findIdsByAccountId(Long accountId);
+
+    // Счет транзакции без загрузки сущности: его строка блокируется до чтения самой транзакции
+    @Query("SELECT t.account.id FROM Transaction t WHERE t.id = :id")
+    Optional<Long> findAccountIdById(Long id);
+
+    // Текущее состояние строки транзакции под блокировкой (SELECT ... FOR UPDATE), а не снимок транзакции БД
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "transactions"))
+    @Query(value = "SELECT * FROM transactions WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Transaction> findByIdForUpdate(Long id);
+
+    // Сумма транзакций по каждому счету пользователя, считается на стороне БД
+    @Query("SELECT t.account.id AS accountId, SUM(t.amount) AS total FROM Transaction t " +
+           "WHERE t.user.id = :userId AND t.account IS NOT NULL GROUP BY t.account.id")
+    List<AccountTotal> sumAmountsByAccount(Long userId);
+
+    // То же, но только по транзакциям после снимка баланса счета (или по всем, если снимка нет)
+    @Query("SELECT t.account.id AS accountId, SUM(t.amount) AS total FROM Transaction t " +
+           "LEFT JOIN BalanceCheckpoint c ON c.accountId = t.account.id " +
+           "WHERE t.user.id = :userId AND t.account IS NOT NULL AND (c.accountId IS NULL OR t.date IS NULL " +
+           "OR t.date > c.asOfDate OR (t.date = c.asOfDate AND t.id > c.lastTransactionId)) " +
+           "GROUP BY t.account.id")
+    List<AccountTotal> sumAmountsAfterCheckpointByAccount(Long userId);
+
+    // Транзакции счета, не учтенные снимком (date, id)
+    @Query("SELECT t FROM Transaction t WHERE t.account.id = :accountId AND (t.date IS NULL " +
+           "OR t.date > :date OR (t.date = :date AND t.id > :lastTransactionId)) ORDER BY t.date, t.id")
+    List<Transaction> findByAccountIdAfter(Long accountId, LocalDateTime date, Long lastTransactionId);
+
+    // Сумма транзакций счета в интервале ((fromDate, fromId), horizon]
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.account.id = :accountId " +
+           "AND t.date <= :horizon AND (t.date > :fromDate OR (t.date = :fromDate AND t.id > :fromId))")
+    BigDecimal sumAmountBetween(Long accountId, LocalDateTime fromDate, Long fromId, LocalDateTime horizon);
+
+    // Позиция (date, id) последней транзакции счета не позже horizon
+    @Query("SELECT t.id AS id, t.date AS date FROM Transaction t WHERE t.account.id = :accountId " +
+           "AND t.date <= :horizon ORDER BY t.date DESC, t.id DESC")
+    List<TransactionPosition> findLatestPositions(Long accountId, LocalDateTime horizon, Limit limit);
+
+    @Query("SELECT DISTINCT t.account.id FROM Transaction t WHERE t.user.id = :userId AND t.account IS NOT NULL")
+    List<Long> findDistinctAccountIdsByUserId(Long userId);
+
+    Optional<Transaction> findFirstByAccount_IdOrderByDateDesc(Long accountId);
+
+    interface TransactionPosition {
+        Long getId();
+        LocalDateTime getDate();
+    }
+
+    interface AccountTotal {
+        Long getAccountId();
+        BigDecimal getTotal();
+    }
 }
\ No newline at end of file
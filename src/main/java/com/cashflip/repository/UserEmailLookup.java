@@ -0,0 +1,14 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Поиск пользователя по email через natural id: повторные запросы обслуживает кэш второго уровня.
+// Транзакция нужна для Session вне запроса (фильтр JWT работает до open-in-view)
+public interface UserEmailLookup {
+
+    @Transactional(readOnly = true)
+    Optional<User> findByEmail(String email);
+}
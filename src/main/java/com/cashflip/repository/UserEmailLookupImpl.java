@@ -0,0 +1,25 @@
+package com.cashflip.repository;
+
+import com.cashflip.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+// Реализация фрагмента UserRepository: производный запрос findByEmail всегда шел бы в БД
+public class UserEmailLookupImpl implements UserEmailLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(email);
+    }
+}
@@ -2,11 +2,13 @@ package com.cashflip.repository;
 
 import com.cashflip.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.List;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserEmailLookup {
+    @Query("SELECT u.id FROM User u")
+    List<Long> findAllIds();
 }
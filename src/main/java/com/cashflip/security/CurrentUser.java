@@ -0,0 +1,51 @@
+package com.cashflip.security;
+
+import com.cashflip.entity.User;
+import com.cashflip.repository.UserRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// Текущий пользователь запроса. Id берется из токена (claim uid), поэтому сервисам не нужен findByEmail.
+@Component
+public class CurrentUser {
+
+    private final UserRepository userRepository;
+
+    public CurrentUser(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Long getId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new RuntimeException("Пользователь не найден");
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        // Аутентификация без id (например, не через JWT) - ищем по email
+        return userRepository.findByEmail(authentication.getName())
+                .map(User::getId)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    }
+
+    public String getEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new RuntimeException("Пользователь не найден");
+        }
+        return authentication.getName();
+    }
+
+    // Ссылка на пользователя без SELECT: годится для связей и сравнения по id
+    public User getReference() {
+        return userRepository.getReferenceById(getId());
+    }
+
+    // Полная сущность, когда нужны поля пользователя
+    public User load() {
+        return userRepository.findById(getId())
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.cashflip.security;
 
+import com.cashflip.util.JwtClaims;
 import com.cashflip.util.JwtUtils;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,10 +21,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
     private final UserDetailsService userDetailsService;
+    private final JwtPrincipalCache principalCache;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService,
+                                   JwtPrincipalCache principalCache) {
         this.jwtUtils = jwtUtils;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -42,20 +46,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         final String jwt = authHeader.substring(7);
+        
+        // Токен уже проверялся: берем пользователя из кэша без разбора подписи и запроса к БД
+        AuthenticatedUser cachedUser = principalCache.get(jwt);
+        if (cachedUser != null) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                authenticate(request, cachedUser);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
         try {
-            final String userEmail = jwtUtils.extractUsername(jwt);
+            // Подпись проверяется один раз, дальше используются готовые поля
+            final JwtClaims claims = jwtUtils.parse(jwt);
+            final String userEmail = claims.subject();
             
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
                 
-                if (jwtUtils.validateToken(jwt, userDetails)) {
+                if (jwtUtils.validateToken(claims, userDetails)
+                        && userDetails instanceof AuthenticatedUser authenticatedUser) {
                     // Токен валидный
                     System.out.println("JWT: Valid token for user: " + userEmail);
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                            
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    authenticate(request, authenticatedUser.withoutPassword());
+                    principalCache.put(jwt, authenticatedUser, claims.expiration());
                 } else {
                     // Токен невалидный
                     System.out.println("JWT: Token validation failed for user: " + userEmail);
@@ -68,4 +83,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private void authenticate(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cashflip.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Кэш уже проверенных токенов: SHA-256 токена -> пользователь.
+// Запись живет до exp токена, но не дольше ttl: повторные запросы не проверяют подпись и не ходят в таблицу users,
+// а удаление или изменение пользователя в БД становится видно не позже чем через ttl.
+@Component
+public class JwtPrincipalCache {
+
+    public record Entry(AuthenticatedUser user, long expiresAtMillis) {
+    }
+
+    private final Cache<String, Entry> cache;
+    private final long ttlMillis;
+
+    public JwtPrincipalCache(MeterRegistry meterRegistry,
+                             @Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+                             @Value("${jwt.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        long millisLeft = entry.expiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        // Метрики cache.gets{result=hit|miss}, cache.size, cache.evictions с тегом cache=jwt.principals
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.principals");
+    }
+
+    public AuthenticatedUser get(String token) {
+        Entry entry = cache.getIfPresent(hash(token));
+        if (entry == null) {
+            return null;
+        }
+        // Страховка на случай, если запись еще не вытеснена по времени
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            cache.invalidate(hash(token));
+            return null;
+        }
+        return entry.user();
+    }
+
+    public void put(String token, AuthenticatedUser user, Date expiration) {
+        if (expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        long expiresAt = Math.min(expiration.getTime(), System.currentTimeMillis() + ttlMillis);
+        // Хэш пароля в кэше не нужен
+        cache.put(hash(token), new Entry(user.withoutPassword(), expiresAt));
+    }
+
+    private String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
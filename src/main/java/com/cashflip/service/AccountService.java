@@ -2,55 +2,113 @@ package com.cashflip.service;
 
 import com.cashflip.dto.AccountDTO;
 import com.cashflip.entity.Account;
+import com.cashflip.entity.BalanceCheckpoint;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
 import com.cashflip.entity.Transaction;
 import com.cashflip.entity.User;
 import com.cashflip.repository.AccountRepository;
 import com.cashflip.repository.TransactionRepository;
-import com.cashflip.repository.UserRepository;
+import com.cashflip.security.CurrentUser;
+import com.cashflip.util.SingleFlight;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import jakarta.transaction.Transactional;
 
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class AccountService {
     
+    private static final Logger logger = LoggerFactory.getLogger(AccountService.class);
+    
     private final AccountRepository accountRepository;
-    private final UserRepository userRepository;
+    private final CurrentUser currentUser;
     private final TransactionRepository transactionRepository;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final TransactionSummaryCache summaryCache;
+    private final MonthlyRollupService monthlyRollupService;
+    private final ChangeLogService changeLogService;
+    private final LedgerWriteExecutor ledgerWriteExecutor;
+    // Пересчеты по запросам клиента и по расписанию идут в собственной транзакции и объединяются по пользователю
+    private final TransactionTemplate resyncTransaction;
+    private final SingleFlight<Long> resyncFlights = new SingleFlight<>();
+    
+    // Способ пересчета балансов: агрегатом в БД или повторным проходом по всем транзакциям
+    public enum RecalculationMode {
+        AGGREGATE,
+        REPLAY
+    }
+    
+    @Value("${balance.recalculation.mode:AGGREGATE}")
+    private RecalculationMode recalculationMode = RecalculationMode.AGGREGATE;
     
     // Добавляем TransactionRepository в конструктор
     public AccountService(
             AccountRepository accountRepository, 
-            UserRepository userRepository,
-            TransactionRepository transactionRepository) {
+            CurrentUser currentUser,
+            TransactionRepository transactionRepository,
+            BalanceCheckpointService balanceCheckpointService,
+            BalanceHistoryService balanceHistoryService,
+            TransactionSummaryCache summaryCache,
+            MonthlyRollupService monthlyRollupService,
+            ChangeLogService changeLogService,
+            LedgerWriteExecutor ledgerWriteExecutor,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry) {
         this.accountRepository = accountRepository;
-        this.userRepository = userRepository;
+        this.currentUser = currentUser;
         this.transactionRepository = transactionRepository;
+        this.balanceCheckpointService = balanceCheckpointService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.summaryCache = summaryCache;
+        this.monthlyRollupService = monthlyRollupService;
+        this.changeLogService = changeLogService;
+        this.ledgerWriteExecutor = ledgerWriteExecutor;
+        this.resyncTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.resyncTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        FunctionCounter.builder("balance.resync.executions", resyncFlights, SingleFlight::executions)
+                .register(meterRegistry);
+        FunctionCounter.builder("balance.resync.coalesced", resyncFlights, SingleFlight::coalesced)
+                .register(meterRegistry);
     }
     
     public List<AccountDTO> getUserAccounts() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.getReference();
         
         return accountRepository.findByUserId(user.getId()).stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
     
+    // Счета пользователя по id (для ответа синхронизации)
+    public List<AccountDTO> getUserAccountsByIds(Long userId, Collection<Long> ids) {
+        return accountRepository.findAllById(ids).stream()
+                .filter(account -> account.getUser() != null && userId.equals(account.getUser().getId()))
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    @Transactional
     public AccountDTO createAccount(AccountDTO accountDTO) {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.getReference();
         
         Account account = Account.builder()
                 .name(accountDTO.getName())
@@ -63,14 +121,15 @@ public class AccountService {
                 .user(user)
                 .build();
         
-        return mapToDTO(accountRepository.save(account));
+        Account saved = accountRepository.save(account);
+        changeLogService.record(user.getId(), ChangeLogService.Change.upsert(EntityType.ACCOUNT, saved.getId()));
+        return mapToDTO(saved);
     }
     
+    @Transactional
     public AccountDTO updateAccount(Long id, AccountDTO accountDTO) {
         // Найти аккаунт и проверить, принадлежит ли он текущему пользователю
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.getReference();
         
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
@@ -89,14 +148,17 @@ public class AccountService {
         account.setIconCode(accountDTO.getIconCode());
         account.setColorValue(accountDTO.getColorValue());
         
-        return mapToDTO(accountRepository.save(account));
+        // Название счета входит в итоги по счетам
+        summaryCache.invalidate(user.getId());
+        
+        Account saved = accountRepository.save(account);
+        changeLogService.record(user.getId(), ChangeLogService.Change.upsert(EntityType.ACCOUNT, saved.getId()));
+        return mapToDTO(saved);
     }
     
     @Transactional
     public void deleteAccount(Long id) {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.getReference();
         
         Account account = accountRepository.findByIdAndUser(id, user)
                 .orElseThrow(() -> new RuntimeException("Счет не найден или не принадлежит пользователю"));
@@ -110,8 +172,22 @@ public class AccountService {
         System.out.println("Удаление счета #" + id + " (" + account.getName() + 
                           ") с " + transactionsCount + " транзакциями");
         
+        // Id транзакций нужны для журнала синхронизации: после каскадного удаления их уже не найти
+        List<Long> transactionIds = transactionRepository.findIdsByAccountId(id);
+        
         // Удаляем счет (транзакции удалятся автоматически благодаря каскадному удалению)
         accountRepository.delete(account);
+        balanceCheckpointService.deleteForAccount(id);
+        balanceHistoryService.deleteForAccount(id);
+        monthlyRollupService.deleteForAccount(id);
+        summaryCache.invalidate(user.getId());
+        
+        List<ChangeLogService.Change> changes = new ArrayList<>(transactionIds.size() + 1);
+        changes.add(ChangeLogService.Change.delete(EntityType.ACCOUNT, id));
+        for (Long transactionId : transactionIds) {
+            changes.add(ChangeLogService.Change.delete(EntityType.TRANSACTION, transactionId));
+        }
+        changeLogService.record(user.getId(), changes);
         
         System.out.println("Счет #" + id + " успешно удален");
     }
@@ -138,31 +214,25 @@ public class AccountService {
                 .build();
     }
 
-    public boolean isAccountOwnedByCurrentUser(Long accountId) {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-                
-        return accountRepository.findByIdAndUser(accountId, user).isPresent();
+    // Недостающие счета создаются и фиксируются до пересчета: объединенный пересчет идет в своей транзакции
+    public List<AccountDTO> recoverAccountsFromTransactions() {
+        Long userId = currentUser.getId();
+        
+        resyncTransaction.executeWithoutResult(status -> createMissingAccounts(currentUser.getReference()));
+        
+        // Пересчитываем балансы всех счетов
+        resyncBalancesCoalesced(userId);
+        
+        // Возвращаем все счета, включая восстановленные
+        return accountRepository.findByUserId(userId).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
     }
     
-    @Transactional
-    public List<AccountDTO> recoverAccountsFromTransactions() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        // Получаем все транзакции пользователя
-        List<Transaction> transactions = transactionRepository.findByUserIdOrderByDateDesc(user.getId());
-        
-        // Собираем уникальные ID счетов из транзакций
-        Set<Long> accountIds = new HashSet<>();
-        for (Transaction transaction : transactions) {
-            // Исправлено: проверяем, что поле account не null
-            if (transaction.getAccountId() != null) {
-                accountIds.add(transaction.getAccountId());
-            }
-        }
+    // Создает счета, на которые ссылаются транзакции, но которых нет в базе
+    private void createMissingAccounts(User user) {
+        // Собираем уникальные ID счетов из транзакций (без загрузки самих транзакций)
+        Set<Long> accountIds = new HashSet<>(transactionRepository.findDistinctAccountIdsByUserId(user.getId()));
         
         // Находим счета, которых нет в базе
         List<Account> existingAccounts = accountRepository.findByUserId(user.getId());
@@ -177,16 +247,9 @@ public class AccountService {
         // Создаем недостающие счета
         for (Long accountId : accountIds) {
             if (!existingAccountIds.contains(accountId)) {
-                // Находим первую транзакцию с этим счетом для получения информации
-                Transaction sampleTransaction = null;
-                for (Transaction transaction : transactions) {
-                    // Исправлено: сравниваем accountId напрямую
-                    if (transaction.getAccountId() != null && 
-                        transaction.getAccountId().equals(accountId)) {
-                        sampleTransaction = transaction;
-                        break;
-                    }
-                }
+                // Находим транзакцию с этим счетом для получения информации
+                Transaction sampleTransaction = transactionRepository.findFirstByAccount_IdOrderByDateDesc(accountId)
+                        .orElse(null);
                 
                 if (sampleTransaction != null) {
                     // Создаем новый счет
@@ -210,6 +273,9 @@ public class AccountService {
                     newAccount.setIconCode(0); // Значения по умолчанию
                     newAccount.setColorValue(0xFF2196F3);
                     newAccount.setIsMain(false);
+                    // У восстановленного счета уже есть транзакции: дневной индекс и итоги нужно построить заново
+                    newAccount.setHistoryIndexed(false);
+                    newAccount.setRollupsIndexed(false);
                     newAccount.setUser(user);
                     
                     accountRepository.save(newAccount);
@@ -218,64 +284,176 @@ public class AccountService {
             }
         }
         
-        // Пересчитываем балансы всех счетов
-        recalculateBalances(user.getId());
+        changeLogService.recordUpserts(user.getId(), EntityType.ACCOUNT,
+                recoveredAccounts.stream().map(Account::getId).collect(Collectors.toList()));
+    }
+    
+    // Пересчет по запросу клиента или по расписанию. Одновременные вызовы для одного пользователя
+    // не повторяют проход по истории: пришедшие во время пересчета ждут одного повторного запуска и разделяют его результат.
+    // Сам пересчет встает в очередь записи пользователя и не спорит за строки счетов с его запросами
+    public void resyncBalancesCoalesced(Long userId) {
+        resyncFlights.run(userId, () -> ledgerWriteExecutor.runSeparately(userId,
+                () -> resyncTransaction.executeWithoutResult(status -> resyncBalances(userId))));
+    }
+    
+    // Пересчет балансов в настроенном режиме
+    @Transactional
+    public void resyncBalances(Long userId) {
+        // Счета блокируются первым запросом транзакции: пересчет видит все зафиксированные записи, а новые
+        // ждут его окончания и не разойдутся со снимками балансов (см. BalanceCheckpointService)
+        accountRepository.lockByUserId(userId);
+        if (recalculationMode == RecalculationMode.REPLAY) {
+            recalculateBalances(userId);
+        } else {
+            recalculateBalancesFromAggregates(userId);
+        }
+    }
+    
+    // Пересчет через SUM(amount) GROUP BY account_id: стоимость зависит от числа счетов, а не транзакций
+    @Transactional
+    public int recalculateBalancesFromAggregates(Long userId) {
+        List<Account> accounts = accountRepository.findByUserId(userId);
+        Map<Long, BalanceCheckpoint> checkpoints = balanceCheckpointService.findForAccounts(
+                accounts.stream().map(Account::getId).collect(Collectors.toList()));
         
-        // Возвращаем все счета, включая восстановленные
-        return accountRepository.findByUserId(user.getId()).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        // Суммируем только транзакции после снимков балансов
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (TransactionRepository.AccountTotal total : transactionRepository.sumAmountsAfterCheckpointByAccount(userId)) {
+            totals.put(total.getAccountId(), total.getTotal());
+        }
+        
+        // Ищем счета, баланс которых расходится с суммой транзакций
+        int drifted = 0;
+        for (Account account : accounts) {
+            BalanceCheckpoint checkpoint = checkpoints.get(account.getId());
+            BigDecimal expected = totals.getOrDefault(account.getId(), BigDecimal.ZERO)
+                    .add(checkpoint != null ? checkpoint.getBalance() : BigDecimal.ZERO);
+            if (account.getBalance() == null || account.getBalance().compareTo(expected) != 0) {
+                logger.info("Account {} balance {} differs from transaction total {}",
+                        account.getId(), account.getBalance(), expected);
+                balanceHistoryService.rebuild(account.getId());
+                drifted++;
+            }
+        }
+        
+        // Исправляем все балансы одним UPDATE
+        if (drifted > 0) {
+            accountRepository.resetBalancesFromTransactions(userId);
+            changeLogService.recordUpserts(userId, EntityType.ACCOUNT,
+                    accounts.stream().map(Account::getId).collect(Collectors.toList()));
+        }
+        
+        for (Account account : accounts) {
+            balanceCheckpointService.advance(account.getId());
+        }
+        return drifted;
+    }
+    
+    // Плановая сверка по всей истории транзакций, а не от снимка баланса: ошибка в самом снимке иначе
+    // переносится в баланс и не обнаруживается. Идет в очереди записи пользователя, как и пересчет
+    public int verifyBalances(Long userId) {
+        Integer drifted = ledgerWriteExecutor.callSeparately(userId,
+                () -> resyncTransaction.execute(status -> verifyBalancesFromHistory(userId)));
+        return drifted != null ? drifted : 0;
     }
     
-    // Метод для пересчета балансов счетов
+    // Сравнивает баланс и снимок каждого счета с полной суммой его транзакций. У разошедшихся счетов снимок
+    // удаляется и строится заново с начала истории, баланс выставляется равным сумме транзакций
     @Transactional
-    public void recalculateBalances(Long userId) {
-        // Получаем все счета пользователя и обнуляем балансы
+    public int verifyBalancesFromHistory(Long userId) {
+        accountRepository.lockByUserId(userId);
         List<Account> accounts = accountRepository.findByUserId(userId);
-        System.out.println("Пересчет балансов для " + accounts.size() + " счетов");
+        Map<Long, BalanceCheckpoint> checkpoints = balanceCheckpointService.findForAccounts(
+                accounts.stream().map(Account::getId).collect(Collectors.toList()));
         
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (TransactionRepository.AccountTotal total : transactionRepository.sumAmountsByAccount(userId)) {
+            totals.put(total.getAccountId(), total.getTotal());
+        }
+        Map<Long, BigDecimal> totalsAfterCheckpoint = new HashMap<>();
+        for (TransactionRepository.AccountTotal total : transactionRepository.sumAmountsAfterCheckpointByAccount(userId)) {
+            totalsAfterCheckpoint.put(total.getAccountId(), total.getTotal());
+        }
+        
+        List<Long> driftedAccountIds = new ArrayList<>();
         for (Account account : accounts) {
-            System.out.println("Счет #" + account.getId() + " (" + account.getName() + 
-                              "): исходный баланс = " + account.getBalance());
-            account.setBalance(BigDecimal.ZERO);
+            BigDecimal expected = totals.getOrDefault(account.getId(), BigDecimal.ZERO);
+            BalanceCheckpoint checkpoint = checkpoints.get(account.getId());
+            boolean balanceDrifted = account.getBalance() == null || account.getBalance().compareTo(expected) != 0;
+            boolean checkpointDrifted = checkpoint != null && checkpoint.getBalance()
+                    .add(totalsAfterCheckpoint.getOrDefault(account.getId(), BigDecimal.ZERO))
+                    .compareTo(expected) != 0;
+            if (balanceDrifted || checkpointDrifted) {
+                logger.warn("Account {} balance {} (checkpoint {}) differs from full transaction total {}",
+                        account.getId(), account.getBalance(),
+                        checkpoint != null ? checkpoint.getBalance() : null, expected);
+                balanceCheckpointService.deleteForAccount(account.getId());
+                balanceHistoryService.rebuild(account.getId());
+                driftedAccountIds.add(account.getId());
+            }
         }
-        accountRepository.saveAll(accounts);
         
-        // Получаем все транзакции и применяем их к счетам
-        List<Transaction> transactions = transactionRepository.findByUserIdOrderByDateDesc(userId);
-        System.out.println("Найдено " + transactions.size() + " транзакций для пересчета");
+        if (!driftedAccountIds.isEmpty()) {
+            accountRepository.resetBalancesFromTransactions(userId);
+            changeLogService.recordUpserts(userId, EntityType.ACCOUNT, driftedAccountIds);
+        }
         
-        // Создаем карту счетов для быстрого доступа
-        java.util.Map<Long, Account> accountMap = new java.util.HashMap<>();
+        // Снимки всех счетов продвигаются, как при пересчете; у разошедшихся строятся с начала истории
         for (Account account : accounts) {
-            accountMap.put(account.getId(), account);
+            balanceCheckpointService.advance(account.getId());
         }
+        return driftedAccountIds.size();
+    }
+    
+    // Метод для пересчета балансов счетов: повторный проход по транзакциям начиная со снимка баланса
+    @Transactional
+    public void recalculateBalances(Long userId) {
+        List<Account> accounts = accountRepository.findByUserId(userId);
+        logger.debug("Replaying balances of {} accounts of user {}", accounts.size(), userId);
         
-        // Применяем транзакции
-        for (Transaction transaction : transactions) {
-            if (transaction.getAccountId() != null) {
-                Long accountId = transaction.getAccountId();
-                Account account = accountMap.get(accountId);
-                
-                if (account != null && transaction.getAmount() != null) {
-                    account.setBalance(account.getBalance().add(transaction.getAmount()));
-                    System.out.println("Транзакция #" + transaction.getId() + 
-                                      " применена к счету #" + accountId + 
-                                      ": новый баланс = " + account.getBalance());
-                } else {
-                    System.out.println("ОШИБКА: Не удалось применить транзакцию #" + 
-                                      transaction.getId() + " к счету #" + accountId);
+        Map<Long, BalanceCheckpoint> checkpoints = balanceCheckpointService.findForAccounts(
+                accounts.stream().map(Account::getId).collect(Collectors.toList()));
+        
+        List<Long> changedAccountIds = new ArrayList<>();
+        for (Account account : accounts) {
+            // Начинаем со снимка, если он есть, иначе с нуля по всей истории
+            BalanceCheckpoint checkpoint = checkpoints.get(account.getId());
+            BigDecimal balance = BigDecimal.ZERO;
+            List<Transaction> transactions;
+            if (checkpoint != null) {
+                balance = checkpoint.getBalance();
+                transactions = transactionRepository.findByAccountIdAfter(
+                        account.getId(), checkpoint.getAsOfDate(), checkpoint.getLastTransactionId());
+                logger.debug("Account {}: replay from checkpoint {} = {}",
+                        account.getId(), checkpoint.getAsOfDate(), balance);
+            } else {
+                transactions = transactionRepository.findByAccount_Id(account.getId());
+            }
+            
+            // Применяем транзакции
+            for (Transaction transaction : transactions) {
+                if (transaction.getAmount() != null) {
+                    balance = balance.add(transaction.getAmount());
                 }
             }
+            
+            // Расхождение баланса означает, что и дневной индекс мог разойтись с транзакциями
+            if (account.getBalance() == null || account.getBalance().compareTo(balance) != 0) {
+                balanceHistoryService.rebuild(account.getId());
+                changedAccountIds.add(account.getId());
+            }
+            account.setBalance(balance);
+            
+            logger.debug("Account {}: applied {} transactions, balance = {}",
+                    account.getId(), transactions.size(), balance);
         }
         
         // Сохраняем обновленные счета
         accountRepository.saveAll(accounts);
+        changeLogService.recordUpserts(userId, EntityType.ACCOUNT, changedAccountIds);
         
-        // Выводим итоговые балансы
         for (Account account : accounts) {
-            System.out.println("Счет #" + account.getId() + " (" + account.getName() + 
-                              "): итоговый баланс = " + account.getBalance());
+            balanceCheckpointService.advance(account.getId());
         }
     }
     
@@ -295,19 +473,15 @@ public class AccountService {
         return currency;
     }
 
-    @Transactional
     public List<AccountDTO> recalculateAndGetAccounts() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
         
-        // Расширенная версия метода с логированием
-        System.out.println("Начинаем пересчет балансов счетов для пользователя: " + email);
+        logger.info("Recalculating account balances of user {}", user.getId());
         
-        recalculateBalances(user.getId());
+        resyncBalancesCoalesced(user.getId());
         
         List<AccountDTO> accounts = getUserAccounts();
-        System.out.println("Пересчет завершен. Обновлено счетов: " + accounts.size());
+        logger.info("Recalculated {} accounts of user {}", accounts.size(), user.getId());
         
         return accounts;
     }
@@ -0,0 +1,129 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.BalanceCheckpoint;
+import com.cashflip.repository.AccountDailyBalanceRepository;
+import com.cashflip.repository.BalanceCheckpointRepository;
+import com.cashflip.repository.TransactionRepository;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Снимки балансов: пересчет начинается с последнего снимка, а не с нуля.
+// Сброс и построение снимка должны идти под блокировкой строки счета, иначе снимок без параллельной записи задним
+// числом переживет ее сброс. Блокировку берет вызывающий первым запросом транзакции (до снимка чтения
+// REPEATABLE READ): записи - BalanceService.lockAccounts, пересчет и сверка - AccountService через lockByUserId.
+// Здесь она не повторяется: лишний SELECT ... FOR UPDATE на каждую запись ничего не защищает.
+@Service
+public class BalanceCheckpointService {
+
+    // Начало истории для счетов без снимка
+    static final LocalDateTime BEGINNING = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountDailyBalanceRepository dailyBalanceRepository;
+
+    // Снимок строится не ближе этого числа дней к текущей дате, чтобы обычные
+    // записи "задним числом" за последние дни не сбрасывали его
+    @Value("${balance.checkpoint.lag-days:7}")
+    private int lagDays = 7;
+
+    public BalanceCheckpointService(BalanceCheckpointRepository checkpointRepository,
+                                    TransactionRepository transactionRepository,
+                                    AccountDailyBalanceRepository dailyBalanceRepository) {
+        this.checkpointRepository = checkpointRepository;
+        this.transactionRepository = transactionRepository;
+        this.dailyBalanceRepository = dailyBalanceRepository;
+    }
+
+    public BalanceCheckpoint find(Long accountId) {
+        return checkpointRepository.findById(accountId).orElse(null);
+    }
+
+    public Map<Long, BalanceCheckpoint> findForAccounts(Collection<Long> accountIds) {
+        Map<Long, BalanceCheckpoint> checkpoints = new HashMap<>();
+        for (BalanceCheckpoint checkpoint : checkpointRepository.findAllById(accountIds)) {
+            checkpoints.put(checkpoint.getAccountId(), checkpoint);
+        }
+        return checkpoints;
+    }
+
+    // Сбрасывает снимок, если транзакция с этой датой попадает в уже учтенный период.
+    // Строка счета уже заблокирована вызывающим
+    @Transactional
+    public void invalidate(Long accountId, LocalDateTime date) {
+        if (accountId == null || date == null) {
+            return;
+        }
+        checkpointRepository.deleteCoveringDate(accountId, date);
+    }
+
+    // Продвигает снимок счета до текущего горизонта, суммируя только новые транзакции.
+    // Строка счета уже заблокирована вызывающим
+    @Transactional
+    public void advance(Long accountId) {
+        LocalDateTime horizon = LocalDateTime.now().minusDays(lagDays);
+        BalanceCheckpoint checkpoint = checkpointRepository.findById(accountId).orElse(null);
+        // Снимок без отсчета истории (старый или после перестроения индекса) достраивается даже на том же месте
+        boolean hasHistory = checkpoint != null && checkpoint.getHistoryDay() != null;
+
+        if (hasHistory && !checkpoint.getAsOfDate().isBefore(horizon)) {
+            return;
+        }
+
+        List<TransactionRepository.TransactionPosition> latest =
+                transactionRepository.findLatestPositions(accountId, horizon, Limit.of(1));
+        if (latest.isEmpty()) {
+            return;
+        }
+        TransactionRepository.TransactionPosition position = latest.get(0);
+
+        LocalDateTime fromDate = checkpoint != null ? checkpoint.getAsOfDate() : BEGINNING;
+        Long fromId = checkpoint != null ? checkpoint.getLastTransactionId() : 0L;
+        if (hasHistory && position.getDate().equals(fromDate) && position.getId().equals(fromId)) {
+            return;
+        }
+
+        BigDecimal delta = transactionRepository.sumAmountBetween(accountId, fromDate, fromId, horizon);
+        BigDecimal balance = checkpoint != null ? checkpoint.getBalance().add(delta) : delta;
+
+        // Отсчет истории - конец дня перед днем снимка: дни до него полностью учтены и не меняются, пока снимок жив
+        LocalDate historyDay = position.getDate().toLocalDate().minusDays(1);
+        BigDecimal historyBalance = hasHistory && !historyDay.isBefore(checkpoint.getHistoryDay())
+                ? checkpoint.getHistoryBalance().add(
+                        dailyBalanceRepository.sumNetChangeBetween(accountId, checkpoint.getHistoryDay(), historyDay))
+                : dailyBalanceRepository.sumNetChangeBefore(accountId, historyDay.plusDays(1));
+
+        BalanceCheckpoint advanced = new BalanceCheckpoint(
+                accountId, balance, position.getDate(), position.getId(), LocalDateTime.now());
+        advanced.setHistoryDay(historyDay);
+        advanced.setHistoryBalance(historyBalance);
+        checkpointRepository.save(advanced);
+    }
+
+    // Дневной индекс счета перестроен: прежний отсчет истории балансов больше не верен.
+    // Через сущность, а не UPDATE: снимок мог быть уже прочитан в этой транзакции, и advance увидел бы старый отсчет
+    @Transactional
+    public void clearHistory(Long accountId) {
+        checkpointRepository.findById(accountId).ifPresent(checkpoint -> {
+            checkpoint.setHistoryDay(null);
+            checkpoint.setHistoryBalance(null);
+        });
+    }
+
+    @Transactional
+    public void deleteForAccount(Long accountId) {
+        checkpointRepository.deleteById(accountId);
+    }
+}
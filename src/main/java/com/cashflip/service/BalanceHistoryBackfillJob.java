@@ -0,0 +1,49 @@
+package com.cashflip.service;
+
+import com.cashflip.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Построение дневного индекса балансов для счетов с history_indexed = false: записанных до его появления
+// и восстановленных по транзакциям. Дельты таких счетов уже попадают в индекс, поэтому наличие строк индекса
+// ничего не говорит. Запускается при старте и периодически; до построения история баланса счета не отдается
+@Component
+public class BalanceHistoryBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceHistoryBackfillJob.class);
+
+    private final BalanceHistoryService balanceHistoryService;
+    private final AccountRepository accountRepository;
+
+    public BalanceHistoryBackfillJob(BalanceHistoryService balanceHistoryService, AccountRepository accountRepository) {
+        this.balanceHistoryService = balanceHistoryService;
+        this.accountRepository = accountRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${balance.history.backfill-interval-ms:60000}",
+               initialDelayString = "${balance.history.backfill-interval-ms:60000}")
+    public void backfill() {
+        List<Long> accountIds = accountRepository.findIdsWithoutHistoryIndex();
+        if (accountIds.isEmpty()) {
+            return;
+        }
+
+        int indexed = 0;
+        for (Long accountId : accountIds) {
+            try {
+                balanceHistoryService.rebuild(accountId);
+                indexed++;
+            } catch (Exception e) {
+                logger.error("Balance history backfill failed for account " + accountId + ": " + e.getMessage(), e);
+            }
+        }
+        logger.info("Balance history backfill finished: {} of {} accounts indexed", indexed, accountIds.size());
+    }
+}
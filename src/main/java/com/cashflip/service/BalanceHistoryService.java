@@ -0,0 +1,172 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.BalancePointDTO;
+import com.cashflip.entity.Account;
+import com.cashflip.entity.AccountDailyBalance;
+import com.cashflip.entity.BalanceCheckpoint;
+import com.cashflip.entity.Transaction;
+import com.cashflip.entity.User;
+import com.cashflip.repository.AccountDailyBalanceRepository;
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.security.CurrentUser;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// История балансов по дневному индексу: запрос за период читает O(дней), а не O(транзакций)
+@Service
+public class BalanceHistoryService {
+
+    // Максимальная длина запрашиваемого периода
+    private static final long MAX_RANGE_DAYS = 3660;
+
+    private final AccountDailyBalanceRepository dailyBalanceRepository;
+    private final AccountRepository accountRepository;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final CurrentUser currentUser;
+    private final BalanceCheckpointService balanceCheckpointService;
+
+    public BalanceHistoryService(AccountDailyBalanceRepository dailyBalanceRepository,
+                                 AccountRepository accountRepository,
+                                 EntityCacheEvictor entityCacheEvictor,
+                                 CurrentUser currentUser,
+                                 BalanceCheckpointService balanceCheckpointService) {
+        this.dailyBalanceRepository = dailyBalanceRepository;
+        this.accountRepository = accountRepository;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.currentUser = currentUser;
+        this.balanceCheckpointService = balanceCheckpointService;
+    }
+
+    // Учитывает изменение баланса в индексе того дня, к которому относится транзакция
+    @Transactional
+    public void recordDelta(Long accountId, LocalDateTime date, BigDecimal delta, int countDelta) {
+        if (accountId == null || date == null || delta == null) {
+            return;
+        }
+        dailyBalanceRepository.addDelta(accountId, date.toLocalDate(), delta, countDelta);
+    }
+
+    // Одна запись в индекс на каждый день счета, сколько бы транзакций за него ни пришло
+    public void recordDeltas(List<Transaction> transactions) {
+        Map<Long, Map<LocalDate, BigDecimal>> deltas = new HashMap<>();
+        Map<Long, Map<LocalDate, Integer>> counts = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId() == null || transaction.getDate() == null || transaction.getAmount() == null) {
+                continue;
+            }
+            LocalDate day = transaction.getDate().toLocalDate();
+            deltas.computeIfAbsent(transaction.getAccountId(), id -> new HashMap<>())
+                    .merge(day, transaction.getAmount(), BigDecimal::add);
+            counts.computeIfAbsent(transaction.getAccountId(), id -> new HashMap<>())
+                    .merge(day, 1, Integer::sum);
+        }
+
+        deltas.forEach((accountId, days) -> days.forEach((day, delta) ->
+                dailyBalanceRepository.addDelta(accountId, day, delta, counts.get(accountId).get(day))));
+    }
+
+    // Индекс счета строится заново по транзакциям и отмечается построенным. Под блокировкой строки счета:
+    // записи берут ее первой (BalanceService.lockAccounts), так что новые дельты не теряются, а параллельные
+    // перестроения выполняются по очереди и дают тот же результат
+    @Transactional
+    public void rebuild(Long accountId) {
+        accountRepository.lockById(accountId);
+        dailyBalanceRepository.deleteByAccountId(accountId);
+        dailyBalanceRepository.rebuildForAccount(accountId);
+        balanceCheckpointService.clearHistory(accountId);
+        accountRepository.markHistoryIndexed(accountId);
+        entityCacheEvictor.evictAccount(accountId);
+    }
+
+    @Transactional
+    public void deleteForAccount(Long accountId) {
+        dailyBalanceRepository.deleteByAccountId(accountId);
+    }
+
+    // Баланс на конец каждого шага (day, week, month) в интервале [from, to]
+    @Transactional
+    public List<BalancePointDTO> getBalanceHistory(Long accountId, LocalDate from, LocalDate to, String step) {
+        User user = currentUser.getReference();
+
+        Account account = accountRepository.findByIdAndUser(accountId, user)
+                .orElseThrow(() -> new AccessDeniedException("Счет не найден или не принадлежит пользователю"));
+
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusMonths(1);
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Параметр from должен быть не позже to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Слишком длинный период: не более " + MAX_RANGE_DAYS + " дней");
+        }
+
+        // Индекс счета строит BalanceHistoryBackfillJob: чтение не перестраивает его под блокировкой счета
+        if (!account.isHistoryIndexed()) {
+            throw new IllegalStateException("История баланса счета еще строится, повторите запрос позже");
+        }
+
+        Map<LocalDate, BigDecimal> changes = new HashMap<>();
+        for (AccountDailyBalance row : dailyBalanceRepository.findByAccountIdAndDayBetweenOrderByDay(accountId, from, to)) {
+            changes.put(row.getDay(), row.getNetChange());
+        }
+
+        BigDecimal balance = openingBalance(accountId, from);
+        List<BalancePointDTO> points = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            balance = balance.add(changes.getOrDefault(day, BigDecimal.ZERO));
+            if (day.equals(to) || isStepEnd(day, from, step)) {
+                points.add(new BalancePointDTO(day, balance));
+            }
+        }
+        return points;
+    }
+
+    // Баланс на начало дня from: от отсчета в снимке баланса по дням между ним и from,
+    // без снимка - по всем предыдущим дням
+    private BigDecimal openingBalance(Long accountId, LocalDate from) {
+        BalanceCheckpoint checkpoint = balanceCheckpointService.find(accountId);
+        if (checkpoint == null || checkpoint.getHistoryDay() == null) {
+            return dailyBalanceRepository.sumNetChangeBefore(accountId, from);
+        }
+        LocalDate anchor = checkpoint.getHistoryDay();
+        LocalDate dayBefore = from.minusDays(1);
+        if (!dayBefore.isBefore(anchor)) {
+            return checkpoint.getHistoryBalance().add(
+                    dailyBalanceRepository.sumNetChangeBetween(accountId, anchor, dayBefore));
+        }
+        return checkpoint.getHistoryBalance().subtract(
+                dailyBalanceRepository.sumNetChangeBetween(accountId, dayBefore, anchor));
+    }
+
+    private boolean isStepEnd(LocalDate day, LocalDate from, String step) {
+        if (step == null) {
+            return true;
+        }
+        switch (step.toLowerCase()) {
+            case "day":
+                return true;
+            case "week":
+                return ChronoUnit.DAYS.between(from, day) % 7 == 6;
+            case "month":
+                return day.getDayOfMonth() == day.lengthOfMonth();
+            default:
+                throw new IllegalArgumentException("Неизвестный шаг: " + step);
+        }
+    }
+}
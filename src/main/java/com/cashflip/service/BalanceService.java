@@ -0,0 +1,125 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.Account;
+import com.cashflip.entity.Transaction;
+import com.cashflip.repository.AccountRepository;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Инкрементальное обновление балансов: каждая запись в журнале меняет баланс только на свою дельту.
+// Полный пересчет по истории выполняется отдельно (см. BalanceVerificationJob).
+// Вместе с балансом обновляются дневной индекс и месячные итоги.
+@Service
+public class BalanceService {
+
+    private final AccountRepository accountRepository;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final EntityCacheEvictor entityCacheEvictor;
+
+    public BalanceService(AccountRepository accountRepository,
+                          BalanceCheckpointService balanceCheckpointService,
+                          BalanceHistoryService balanceHistoryService,
+                          MonthlyRollupService monthlyRollupService,
+                          EntityCacheEvictor entityCacheEvictor) {
+        this.accountRepository = accountRepository;
+        this.balanceCheckpointService = balanceCheckpointService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.monthlyRollupService = monthlyRollupService;
+        this.entityCacheEvictor = entityCacheEvictor;
+    }
+
+    // Первое действие любой записи в журнал: строки затронутых счетов блокируются в порядке id.
+    // Вставка строки транзакции берет разделяемую блокировку счета по внешнему ключу; если исключительная
+    // блокировка UPDATE баланса запрашивается уже после нее, две параллельные записи в один счет
+    // взаимно блокируются в InnoDB. Возвращает id счетов, которые принадлежат пользователю.
+    public Set<Long> lockAccounts(Long userId, Collection<Long> accountIds) {
+        List<Long> ids = accountIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(accountRepository.lockOwned(userId, ids));
+    }
+
+    // Применяет сумму транзакции к балансу ее счета
+    public void applyTransaction(Transaction transaction) {
+        applyDelta(transaction.getAccount(), transaction.getAmount(), transaction.getDate());
+        balanceHistoryService.recordDelta(transaction.getAccountId(), transaction.getDate(), transaction.getAmount(), 1);
+        monthlyRollupService.apply(transaction, 1);
+    }
+
+    // Отменяет влияние транзакции на баланс ее счета
+    public void revertTransaction(Transaction transaction) {
+        if (transaction.getAmount() != null) {
+            applyDelta(transaction.getAccount(), transaction.getAmount().negate(), transaction.getDate());
+            balanceHistoryService.recordDelta(transaction.getAccountId(), transaction.getDate(),
+                    transaction.getAmount().negate(), -1);
+            monthlyRollupService.apply(transaction, -1);
+        }
+    }
+
+    // Применяет пачку новых транзакций: одно изменение баланса на счет,
+    // одна запись дневного индекса на день счета и одна запись итогов на месяц и категорию
+    public void applyTransactions(List<Transaction> transactions) {
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        Map<Long, LocalDateTime> earliestDates = new HashMap<>();
+
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccount() == null || transaction.getAmount() == null) {
+                continue;
+            }
+            Long accountId = transaction.getAccountId();
+            accounts.putIfAbsent(accountId, transaction.getAccount());
+            deltas.merge(accountId, transaction.getAmount(), BigDecimal::add);
+            if (transaction.getDate() != null) {
+                earliestDates.merge(accountId, transaction.getDate(), (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+
+        for (Map.Entry<Long, Account> entry : accounts.entrySet()) {
+            // Снимок сбрасывается даже при нулевой сумме: отдельные записи могут оказаться по разные стороны от него
+            balanceCheckpointService.invalidate(entry.getKey(), earliestDates.get(entry.getKey()));
+            updateBalance(entry.getValue(), deltas.get(entry.getKey()));
+        }
+
+        balanceHistoryService.recordDeltas(transactions);
+        monthlyRollupService.applyAll(transactions);
+    }
+
+    private void applyDelta(Account account, BigDecimal delta, LocalDateTime date) {
+        if (account == null || delta == null || delta.signum() == 0) {
+            return;
+        }
+
+        // Запись задним числом делает снимок баланса неверным
+        balanceCheckpointService.invalidate(account.getId(), date);
+        updateBalance(account, delta);
+    }
+
+    private void updateBalance(Account account, BigDecimal delta) {
+        if (delta == null || delta.signum() == 0) {
+            return;
+        }
+
+        // Баланс меняется в БД (UPDATE balance = balance + delta), а не через сущность с проверкой @Version:
+        // строка счета уже заблокирована в lockAccounts, конфликтовать версиям не с чем
+        if (accountRepository.addToBalance(account.getId(), delta) == 0) {
+            throw new RuntimeException("Счет с ID " + account.getId() + " не найден");
+        }
+        // UPDATE в обход сущности: кэшированный счет хранит старый баланс и версию
+        entityCacheEvictor.evictAccount(account.getId());
+    }
+}
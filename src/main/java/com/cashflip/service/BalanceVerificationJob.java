@@ -0,0 +1,49 @@
+package com.cashflip.service;
+
+import com.cashflip.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Плановая сверка балансов: полная сверка с историей транзакций (без снимков балансов) вынесена из обработки запросов
+@Component
+public class BalanceVerificationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceVerificationJob.class);
+
+    private final AccountService accountService;
+    private final UserRepository userRepository;
+
+    @Value("${balance.verification.enabled:true}")
+    private boolean enabled;
+
+    public BalanceVerificationJob(AccountService accountService, UserRepository userRepository) {
+        this.accountService = accountService;
+        this.userRepository = userRepository;
+    }
+
+    @Scheduled(cron = "${balance.verification.cron:0 30 3 * * *}")
+    public void verifyAllBalances() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> userIds = userRepository.findAllIds();
+        logger.info("Balance verification started for {} users", userIds.size());
+
+        int drifted = 0;
+        for (Long userId : userIds) {
+            try {
+                drifted += accountService.verifyBalances(userId);
+            } catch (Exception e) {
+                logger.error("Balance verification failed for user " + userId + ": " + e.getMessage(), e);
+            }
+        }
+
+        logger.info("Balance verification finished: {} accounts corrected", drifted);
+    }
+}
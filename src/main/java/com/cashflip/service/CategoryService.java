@@ -2,14 +2,15 @@ package com.cashflip.service;
 
 import com.cashflip.dto.CategoryDTO;
 import com.cashflip.entity.Category;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
 import com.cashflip.entity.User;
 import com.cashflip.repository.CategoryRepository;
-import com.cashflip.repository.UserRepository;
+import com.cashflip.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -18,13 +19,18 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
-    private final UserRepository userRepository;
+    private final CurrentUser currentUser;
+    private final TransactionSummaryCache summaryCache;
+    private final ChangeLogService changeLogService;
     private final Random random = new Random();
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository, UserRepository userRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CurrentUser currentUser,
+                           TransactionSummaryCache summaryCache, ChangeLogService changeLogService) {
         this.categoryRepository = categoryRepository;
-        this.userRepository = userRepository;
+        this.currentUser = currentUser;
+        this.summaryCache = summaryCache;
+        this.changeLogService = changeLogService;
     }
 
     // Вспомогательный метод для генерации случайного цвета (не слишком темного и не слишком светлого)
@@ -38,48 +44,54 @@ public class CategoryService {
 
     public List<CategoryDTO> getUserCategories() {
         // Получаем текущего пользователя из контекста безопасности
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
 
         // Получаем категории пользователя из репозитория
         List<Category> categories = categoryRepository.findByUser(user);
 
         // Конвертируем в DTO
-        return categories.stream().map(categoryEntity -> {
-            CategoryDTO dto = new CategoryDTO();
-            dto.setId(categoryEntity.getId());
-            dto.setName(categoryEntity.getName());
-            dto.setExpense(categoryEntity.getIsExpense());
-
-            int iconCodeToSet = 58136; // По умолчанию (help_outline)
-            try {
-                if (categoryEntity.getIcon() != null && !categoryEntity.getIcon().isEmpty()) {
-                    iconCodeToSet = Integer.parseInt(categoryEntity.getIcon());
-                }
-            } catch (NumberFormatException e) {
-                System.err.println("Error parsing iconCode for category " + categoryEntity.getName() + ", value: " + categoryEntity.getIcon());
+        return categories.stream().map(this::mapToDTO).collect(Collectors.toList());
+    }
+
+    // Категории пользователя по id (для ответа синхронизации)
+    public List<CategoryDTO> getUserCategoriesByIds(Long userId, Collection<Long> ids) {
+        return categoryRepository.findAllById(ids).stream()
+                .filter(category -> category.getUser() != null && userId.equals(category.getUser().getId()))
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    private CategoryDTO mapToDTO(Category categoryEntity) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setId(categoryEntity.getId());
+        dto.setName(categoryEntity.getName());
+        dto.setExpense(categoryEntity.getIsExpense());
+
+        int iconCodeToSet = 58136; // По умолчанию (help_outline)
+        try {
+            if (categoryEntity.getIcon() != null && !categoryEntity.getIcon().isEmpty()) {
+                iconCodeToSet = Integer.parseInt(categoryEntity.getIcon());
             }
-            dto.setIconCode(iconCodeToSet);
-
-            // Always generate a random color for display for this category.
-            // This dynamically generated color is NOT saved back to the database.
-            // Any color value stored in the database for this category will be ignored during this fetch.
-            int dynamicRandomColor = generateRandomColor();
-            dto.setColorValue(dynamicRandomColor);
-            // Optional: Add a log to observe the behavior
-            // System.out.println("DEBUG: Category '" + categoryEntity.getName() + "' (ID: " + categoryEntity.getId() + ") dynamically assigned color " + dynamicRandomColor + ". Stored DB color was: '" + categoryEntity.getColor() + "'.");
-            
-            return dto;
-        }).collect(Collectors.toList());
+        } catch (NumberFormatException e) {
+            System.err.println("Error parsing iconCode for category " + categoryEntity.getName() + ", value: " + categoryEntity.getIcon());
+        }
+        dto.setIconCode(iconCodeToSet);
+
+        // Always generate a random color for display for this category.
+        // This dynamically generated color is NOT saved back to the database.
+        // Any color value stored in the database for this category will be ignored during this fetch.
+        int dynamicRandomColor = generateRandomColor();
+        dto.setColorValue(dynamicRandomColor);
+        // Optional: Add a log to observe the behavior
+        // System.out.println("DEBUG: Category '" + categoryEntity.getName() + "' (ID: " + categoryEntity.getId() + ") dynamically assigned color " + dynamicRandomColor + ". Stored DB color was: '" + categoryEntity.getColor() + "'.");
+        
+        return dto;
     }
 
     @Transactional
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         // Получаем текущего пользователя из контекста безопасности
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
 
         Category category = new Category();
         category.setName(categoryDTO.getName());
@@ -95,6 +107,7 @@ public class CategoryService {
         category.setUser(user);
 
         Category savedCategory = categoryRepository.save(category);
+        changeLogService.record(user.getId(), ChangeLogService.Change.upsert(EntityType.CATEGORY, savedCategory.getId()));
         
         CategoryDTO resultDTO = new CategoryDTO();
         resultDTO.setId(savedCategory.getId()); 
@@ -109,9 +122,7 @@ public class CategoryService {
     @Transactional
     public CategoryDTO updateCategory(Long id, CategoryDTO categoryDTO) {
         // Получаем текущего пользователя из контекста безопасности
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
         
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Категория не найдена"));
@@ -140,6 +151,8 @@ public class CategoryService {
         category.setIcon(String.valueOf(categoryDTO.getIconCode()));
         
         Category updatedCategory = categoryRepository.save(category);
+        summaryCache.invalidate(user.getId());
+        changeLogService.record(user.getId(), ChangeLogService.Change.upsert(EntityType.CATEGORY, updatedCategory.getId()));
         
         CategoryDTO resultDTO = new CategoryDTO();
         resultDTO.setId(updatedCategory.getId());
@@ -154,9 +167,7 @@ public class CategoryService {
     @Transactional
     public void deleteCategory(Long id) {
         // Получаем текущего пользователя из контекста безопасности
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
         
         // Находим категорию по ID и проверяем, принадлежит ли она пользователю
         Category category = categoryRepository.findById(id)
@@ -171,6 +182,8 @@ public class CategoryService {
         
         // Удаляем категорию
         categoryRepository.delete(category);
+        summaryCache.invalidate(user.getId());
+        changeLogService.record(user.getId(), ChangeLogService.Change.delete(EntityType.CATEGORY, id));
         
         System.out.println("Категория #" + id + " (" + category.getName() + ") успешно удалена");
     }
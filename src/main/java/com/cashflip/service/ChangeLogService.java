@@ -0,0 +1,110 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.ChangeLogEntry;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
+import com.cashflip.entity.ChangeLogEntry.Operation;
+import com.cashflip.repository.ChangeLogJdbcRepository;
+import com.cashflip.repository.ChangeLogRepository;
+import com.cashflip.repository.SyncCursorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Журнал изменений для GET /api/sync. Пишется в той же транзакции, что и само изменение,
+// поэтому клиент не увидит версию раньше, чем данные этой версии.
+@Service
+public class ChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogService.class);
+
+    public record Change(EntityType type, Long id, Operation operation) {
+
+        public static Change upsert(EntityType type, Long id) {
+            return new Change(type, id, Operation.UPSERT);
+        }
+
+        public static Change delete(EntityType type, Long id) {
+            return new Change(type, id, Operation.DELETE);
+        }
+    }
+
+    // Публикуется при записи изменений; слушатели после коммита рассылают события (см. ChangeStreamHub)
+    public record Recorded(Long userId, long version, List<Change> changes) {
+    }
+
+    private final SyncCursorRepository syncCursorRepository;
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeLogJdbcRepository changeLogJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${sync.change-log.retention-days:30}")
+    private long retentionDays;
+
+    public ChangeLogService(SyncCursorRepository syncCursorRepository,
+                            ChangeLogRepository changeLogRepository,
+                            ChangeLogJdbcRepository changeLogJdbcRepository,
+                            ApplicationEventPublisher eventPublisher) {
+        this.syncCursorRepository = syncCursorRepository;
+        this.changeLogRepository = changeLogRepository;
+        this.changeLogJdbcRepository = changeLogJdbcRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void record(Long userId, Change... changes) {
+        record(userId, List.of(changes));
+    }
+
+    // Все изменения одного вызова получают одну новую версию пользователя; вызывается внутри транзакции изменения
+    public void record(Long userId, Collection<Change> changes) {
+        Set<Change> unique = new LinkedHashSet<>();
+        for (Change change : changes) {
+            if (change.id() != null) {
+                unique.add(change);
+            }
+        }
+        if (userId == null || unique.isEmpty()) {
+            return;
+        }
+
+        syncCursorRepository.increment(userId);
+        Long version = syncCursorRepository.findVersion(userId)
+                .orElseThrow(() -> new IllegalStateException("Нет курсора синхронизации пользователя " + userId));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ChangeLogEntry> entries = new ArrayList<>(unique.size());
+        for (Change change : unique) {
+            entries.add(new ChangeLogEntry(userId, version, change.type(), change.id(), change.operation(), now));
+        }
+        changeLogJdbcRepository.insertBatch(entries);
+        eventPublisher.publishEvent(new Recorded(userId, version, List.copyOf(unique)));
+    }
+
+    public void recordUpserts(Long userId, EntityType type, Collection<Long> ids) {
+        List<Change> changes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            changes.add(Change.upsert(type, id));
+        }
+        record(userId, changes);
+    }
+
+    // Старые записи журнала удаляются; клиенты с курсором до них получат полную выгрузку
+    @Scheduled(cron = "${sync.change-log.prune-cron:0 30 4 * * *}")
+    @Transactional
+    public void prune() {
+        LocalDateTime threshold = LocalDateTime.now().minusDays(retentionDays);
+        syncCursorRepository.markPruned(threshold);
+        int removed = changeLogRepository.deleteOlderThan(threshold);
+        logger.info("Change log pruned: {} entries older than {} removed", removed, threshold);
+    }
+}
@@ -0,0 +1,317 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.StreamEventDTO;
+import com.cashflip.dto.TransactionDTO;
+import com.cashflip.entity.Account;
+import com.cashflip.entity.ChangeLogEntry.Operation;
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.repository.SyncCursorRepository;
+import com.cashflip.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Рассылка изменений пользователя по открытым соединениям GET /api/stream.
+// Соединение в простое не держит поток (асинхронный запрос сервлета); события собираются и отправляются
+// на виртуальных потоках. У каждого подписчика ограниченная очередь: если клиент не успевает читать,
+// очередь сбрасывается и вместо пропущенных событий уходит RESYNC - клиент догоняет через /api/sync.
+@Component
+public class ChangeStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamHub.class);
+
+    public static final String READY = "READY";
+    public static final String RESYNC = "RESYNC";
+    public static final String BALANCE = "BALANCE";
+    public static final String TRANSACTION_UPSERT = "TRANSACTION_UPSERT";
+    public static final String TRANSACTION_DELETE = "TRANSACTION_DELETE";
+    public static final String ACCOUNT_DELETE = "ACCOUNT_DELETE";
+    public static final String CATEGORY_UPSERT = "CATEGORY_UPSERT";
+    public static final String CATEGORY_DELETE = "CATEGORY_DELETE";
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final SyncCursorRepository syncCursorRepository;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter resyncs;
+
+    @Value("${stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    // Крупные изменения (импорт, пересчет) не разворачиваются в события - клиент получает RESYNC
+    @Value("${stream.max-events-per-change:500}")
+    private int maxEventsPerChange;
+
+    public ChangeStreamHub(TransactionRepository transactionRepository,
+                           AccountRepository accountRepository,
+                           SyncCursorRepository syncCursorRepository,
+                           MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.syncCursorRepository = syncCursorRepository;
+        Gauge.builder("stream.connections", connections, AtomicInteger::get).register(meterRegistry);
+        this.resyncs = Counter.builder("stream.resyncs").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, bufferSize);
+
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            if (userSubscribers == null) {
+                userSubscribers = ConcurrentHashMap.newKeySet();
+            }
+            if (userSubscribers.size() >= maxConnectionsPerUser) {
+                throw new IllegalStateException("Слишком много открытых потоков событий");
+            }
+            userSubscribers.add(subscriber);
+            return userSubscribers;
+        });
+        connections.incrementAndGet();
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // Версия, с которой поток продолжает данные /api/sync: изменения после нее придут событиями
+        long version = syncCursorRepository.findVersion(userId).orElse(0L);
+        subscriber.offer(new StreamEventDTO(READY, version, null));
+        return emitter;
+    }
+
+    // После коммита: событие не должно опережать данные, которые клиент может перечитать
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChangesRecorded(ChangeLogService.Recorded recorded) {
+        Set<Subscriber> userSubscribers = subscribers.get(recorded.userId());
+        if (userSubscribers == null || userSubscribers.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                List<StreamEventDTO> events = toEvents(recorded);
+                for (Subscriber subscriber : userSubscribers) {
+                    for (StreamEventDTO event : events) {
+                        subscriber.offer(event);
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not build stream events for user {}: {}", recorded.userId(), e.getMessage());
+                for (Subscriber subscriber : userSubscribers) {
+                    subscriber.resync(recorded.version());
+                }
+            }
+        });
+    }
+
+    // Комментарий SSE раз в интервал: прокси не закрывают простаивающие соединения, а мертвые выявляются при записи
+    @Scheduled(fixedDelayString = "${stream.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (Set<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.ping();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        executor.shutdown();
+    }
+
+    private List<StreamEventDTO> toEvents(ChangeLogService.Recorded recorded) {
+        long version = recorded.version();
+        if (recorded.changes().size() > maxEventsPerChange) {
+            return List.of(new StreamEventDTO(RESYNC, version, null));
+        }
+
+        List<Long> upsertedTransactions = new ArrayList<>();
+        List<Long> upsertedAccounts = new ArrayList<>();
+        List<StreamEventDTO> events = new ArrayList<>();
+        for (ChangeLogService.Change change : recorded.changes()) {
+            boolean delete = change.operation() == Operation.DELETE;
+            switch (change.type()) {
+                case TRANSACTION -> {
+                    if (delete) {
+                        events.add(new StreamEventDTO(TRANSACTION_DELETE, version, change.id()));
+                    } else {
+                        upsertedTransactions.add(change.id());
+                    }
+                }
+                case ACCOUNT -> {
+                    if (delete) {
+                        events.add(new StreamEventDTO(ACCOUNT_DELETE, version, change.id()));
+                    } else {
+                        upsertedAccounts.add(change.id());
+                    }
+                }
+                case CATEGORY -> events.add(new StreamEventDTO(delete ? CATEGORY_DELETE : CATEGORY_UPSERT,
+                        version, change.id()));
+            }
+        }
+
+        if (!upsertedTransactions.isEmpty()) {
+            Map<Long, TransactionDTO> transactions = transactionRepository
+                    .findDTOsByUserIdAndIdIn(recorded.userId(), upsertedTransactions).stream()
+                    .collect(Collectors.toMap(TransactionDTO::getId, Function.identity()));
+            for (Long id : upsertedTransactions) {
+                TransactionDTO transaction = transactions.get(id);
+                // Транзакцию успели удалить - ее удаление придет отдельным событием
+                if (transaction != null) {
+                    StreamEventDTO event = new StreamEventDTO(TRANSACTION_UPSERT, version, id);
+                    event.setTransaction(transaction);
+                    events.add(event);
+                }
+            }
+        }
+        if (!upsertedAccounts.isEmpty()) {
+            for (Account account : accountRepository.findAllById(upsertedAccounts)) {
+                StreamEventDTO event = new StreamEventDTO(BALANCE, version, account.getId());
+                event.setBalance(account.getBalance());
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    private class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<StreamEventDTO> queue;
+        // Очередь разбирает не больше одного виртуального потока за раз - порядок событий сохраняется
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final ReentrantLock sendLock = new ReentrantLock();
+
+        Subscriber(Long userId, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(StreamEventDTO event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                resync(event.getVersion());
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // Клиент отстал: неотправленные события заменяются одним RESYNC
+        void resync(Long version) {
+            synchronized (queue) {
+                queue.clear();
+                queue.offer(new StreamEventDTO(RESYNC, version, null));
+            }
+            resyncs.increment();
+            scheduleDrain();
+        }
+
+        void ping() {
+            if (closed.get()) {
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    close(e);
+                }
+            });
+        }
+
+        // Запись в ответ блокирует; ReentrantLock вместо synchronized не закрепляет виртуальный поток за носителем
+        private void send(SseEmitter.SseEventBuilder builder) throws IOException {
+            sendLock.lock();
+            try {
+                emitter.send(builder);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                StreamEventDTO event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    send(SseEmitter.event()
+                            .name(event.getType())
+                            .id(String.valueOf(event.getVersion()))
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            } finally {
+                draining.set(false);
+            }
+            // Событие могло прийти между последним poll и сбросом флага
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close(Exception e) {
+            logger.debug("Stream of user {} closed: {}", userId, e.getMessage());
+            remove(this);
+            emitter.completeWithError(e);
+        }
+    }
+}
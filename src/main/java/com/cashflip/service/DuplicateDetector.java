@@ -0,0 +1,209 @@
+package com.cashflip.service;
+
+import com.cashflip.repository.TransactionJdbcRepository;
+import com.cashflip.util.BloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Поиск дубликатов при вставке по отпечатку (счет, дата, сумма, нормализованное описание).
+// Для активных счетов в памяти держится фильтр Блума по их отпечаткам: для обычной, не повторной
+// транзакции он отвечает "точно нет" без запроса к БД; при "возможно" проверяется индекс в БД.
+// Индекс по отпечатку не уникальный: поиск и вставку делает только держатель блокировки строки счета
+// (BalanceService.lockAccounts первым запросом транзакции), поэтому проверка и запись не разрываются.
+@Component
+public class DuplicateDetector {
+
+    // Что делать с найденным дубликатом: REJECT - отклонить, MERGE - вернуть уже записанную транзакцию,
+    // FLAG - записать с пометкой duplicate_of
+    public enum Policy {
+        REJECT,
+        MERGE,
+        FLAG
+    }
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_FILTER_CAPACITY = 4096;
+
+    private record AccountFilter(BloomFilter filter, AtomicLong size) {
+    }
+
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final Cache<Long, AccountFilter> filters;
+
+    @Value("${transaction.duplicates.policy:MERGE}")
+    private Policy defaultPolicy = Policy.MERGE;
+
+    public DuplicateDetector(TransactionJdbcRepository transactionJdbcRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${transaction.duplicates.bloom.max-accounts:10000}") long maxAccounts,
+                             @Value("${transaction.duplicates.bloom.idle-minutes:60}") long idleMinutes) {
+        this.transactionJdbcRepository = transactionJdbcRepository;
+        this.filters = Caffeine.newBuilder()
+                .maximumSize(maxAccounts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, filters, "transactions.duplicate.filters");
+    }
+
+    // Политика из параметра запроса или, если он не задан, из настроек
+    public Policy resolvePolicy(String name) {
+        if (name == null || name.isEmpty()) {
+            return defaultPolicy;
+        }
+        try {
+            return Policy.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестная политика дубликатов: " + name);
+        }
+    }
+
+    public static String fingerprint(Long accountId, LocalDateTime date, BigDecimal amount, String description) {
+        String key = accountId + "|" +
+                (date != null ? date.truncatedTo(ChronoUnit.SECONDS) : "") + "|" +
+                (amount != null ? amount.stripTrailingZeros().toPlainString() : "") + "|" +
+                normalize(description);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    // Id уже записанной транзакции пользователя с тем же отпечатком или null
+    public Long findDuplicate(Long userId, Long accountId, String fingerprint) {
+        return findDuplicates(userId, accountId, List.of(fingerprint)).get(fingerprint);
+    }
+
+    // Отпечаток -> id уже записанной транзакции; в БД проверяются только отпечатки, прошедшие фильтр.
+    // Вызывается под блокировкой строки счета: иначе фильтр может построиться без незакоммиченных строк
+    public Map<String, Long> findDuplicates(Long userId, Long accountId, Collection<String> fingerprints) {
+        if (accountId == null || fingerprints.isEmpty()) {
+            return Map.of();
+        }
+        BloomFilter filter = filterFor(accountId).filter();
+        List<String> candidates = new ArrayList<>();
+        for (String fingerprint : fingerprints) {
+            if (filter.mightContain(hash1(fingerprint), hash2(fingerprint))) {
+                candidates.add(fingerprint);
+            }
+        }
+        return candidates.isEmpty()
+                ? Map.of()
+                : transactionJdbcRepository.findIdsByFingerprints(userId, accountId, candidates);
+    }
+
+    public void record(Long accountId, String fingerprint) {
+        if (fingerprint != null) {
+            record(accountId, List.of(fingerprint));
+        }
+    }
+
+    // Вызывается после вставки. В транзакции отпечатки попадают в фильтр после коммита: до него строк не видят
+    // ни поиск в БД, ни построение фильтра. Фильтр неактивного счета не создается - он построится из БД при обращении
+    public void record(Long accountId, Collection<String> fingerprints) {
+        if (accountId == null || fingerprints.isEmpty()) {
+            return;
+        }
+        List<String> recorded = List.copyOf(fingerprints);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(accountId, recorded);
+                }
+            });
+        } else {
+            add(accountId, recorded);
+        }
+    }
+
+    // compute, а не getIfPresent: если фильтр счета в этот момент строится, запись дождется его и попадет в него,
+    // а не пропадет между чтением строк из БД и появлением фильтра в кэше
+    private void add(Long accountId, List<String> fingerprints) {
+        boolean[] overflow = new boolean[1];
+        filters.asMap().compute(accountId, (id, entry) -> {
+            if (entry == null) {
+                return null;
+            }
+            for (String fingerprint : fingerprints) {
+                entry.filter().put(hash1(fingerprint), hash2(fingerprint));
+            }
+            overflow[0] = entry.size().addAndGet(fingerprints.size()) > entry.filter().capacity();
+            return entry;
+        });
+        // Переполненный фильтр дает слишком много ложных "возможно": перестроим с запасом
+        if (overflow[0]) {
+            filters.invalidate(accountId);
+        }
+    }
+
+    private AccountFilter filterFor(Long accountId) {
+        return filters.get(accountId, this::load);
+    }
+
+    private AccountFilter load(Long accountId) {
+        List<String> fingerprints = new ArrayList<>();
+        Map<Long, String> missing = new HashMap<>();
+        transactionJdbcRepository.forEachFingerprintSource(accountId, (id, amount, description, date, stored) -> {
+            String fingerprint = stored;
+            if (fingerprint == null) {
+                fingerprint = fingerprint(accountId, date, amount, description);
+                missing.put(id, fingerprint);
+            }
+            fingerprints.add(fingerprint);
+        });
+        // Строки, записанные до появления отпечатков, дозаполняются при первом обращении к счету
+        if (!missing.isEmpty()) {
+            transactionJdbcRepository.updateFingerprints(missing);
+        }
+
+        BloomFilter filter = new BloomFilter(Math.max(fingerprints.size() * 2L, MIN_FILTER_CAPACITY), FALSE_POSITIVE_RATE);
+        for (String fingerprint : fingerprints) {
+            filter.put(hash1(fingerprint), hash2(fingerprint));
+        }
+        return new AccountFilter(filter, new AtomicLong(fingerprints.size()));
+    }
+
+    // Регистр, пунктуация и повторные пробелы в описании не делают транзакцию новой
+    private static String normalize(String description) {
+        if (description == null) {
+            return "";
+        }
+        return description.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    // Отпечаток - равномерно распределенный SHA-256, его первые 128 бит служат хэшами фильтра
+    private static long hash1(String fingerprint) {
+        return Long.parseUnsignedLong(fingerprint, 0, 16, 16);
+    }
+
+    private static long hash2(String fingerprint) {
+        return Long.parseUnsignedLong(fingerprint, 16, 32, 16) | 1;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cashflip.service;
+
+// Транзакция совпала с уже записанной, а политика дубликатов - REJECT
+public class DuplicateTransactionException extends RuntimeException {
+
+    private final Long existingId;
+
+    public DuplicateTransactionException(Long existingId) {
+        super("Такая транзакция уже записана (id " + existingId + ")");
+        this.existingId = existingId;
+    }
+
+    public Long getExistingId() {
+        return existingId;
+    }
+}
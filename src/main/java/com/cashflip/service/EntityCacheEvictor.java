@@ -0,0 +1,52 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.Account;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+// Точечное вытеснение из кэша второго уровня строк, измененных в обход сущностей (UPDATE в БД).
+// Вытеснение повторяется после завершения транзакции: читатель мог успеть положить в кэш старую строку до коммита
+@Component
+public class EntityCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public EntityCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void evictAccount(Long accountId) {
+        evict(Account.class, List.of(accountId));
+    }
+
+    public void evictAccounts(Collection<Long> accountIds) {
+        evict(Account.class, accountIds);
+    }
+
+    private void evict(Class<?> type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache();
+        for (Long id : ids) {
+            cache.evict(type, id);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> evicted = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    for (Long id : evicted) {
+                        cache.evict(type, id);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.IdempotencyRecord;
+import com.cashflip.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Ответы на запросы с Idempotency-Key: ограниченный кэш с TTL поверх таблицы idempotency_keys.
+// Первый запрос с ключом выполняется, одновременные с ним ждут его результата, повторы получают сохраненный ответ.
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public record StoredResponse(String requestHash, int status, String contentType, byte[] body) {
+    }
+
+    // Результат begin: либо готовый ответ, либо право выполнить запрос (owner), либо ожидание не дождалось
+    public record Execution(StoredResponse replay, boolean owner, boolean busy) {
+
+        static Execution replay(StoredResponse response) {
+            return new Execution(response, false, false);
+        }
+
+        static Execution owner() {
+            return new Execution(null, true, false);
+        }
+
+        static Execution busy() {
+            return new Execution(null, false, true);
+        }
+    }
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final Cache<String, StoredResponse> responses;
+    // Выполняющиеся запросы; future завершается сохраненным ответом или null, если ответ не сохранен
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.cache.max-size:10000}") long maxSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotency.responses");
+    }
+
+    public Execution begin(Long userId, String key) throws InterruptedException {
+        String id = id(userId, key);
+        while (true) {
+            StoredResponse stored = responses.get(id, this::load);
+            if (stored != null) {
+                return Execution.replay(stored);
+            }
+
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, mine);
+            if (running == null) {
+                // Предыдущий владелец мог успеть сохранить ответ между проверкой кэша и putIfAbsent
+                stored = responses.getIfPresent(id);
+                if (stored != null) {
+                    inFlight.remove(id, mine);
+                    mine.complete(stored);
+                    return Execution.replay(stored);
+                }
+                return Execution.owner();
+            }
+
+            try {
+                StoredResponse result = running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    return Execution.replay(result);
+                }
+                // Первый запрос завершился без сохраненного ответа (ошибка сервера) - пробуем сами
+            } catch (TimeoutException e) {
+                return Execution.busy();
+            } catch (ExecutionException e) {
+                // future завершается только значением; на всякий случай повторяем попытку
+            }
+        }
+    }
+
+    // Владелец ключа сохраняет ответ; ожидающие запросы получают его сразу
+    public void complete(Long userId, String key, StoredResponse response) {
+        String id = id(userId, key);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            idempotencyRecordRepository.save(new IdempotencyRecord(id, userId, response.requestHash(),
+                    response.status(), response.contentType(), response.body(), now, now.plus(ttl)));
+        } catch (RuntimeException e) {
+            // Ответ все равно остается в кэше; потеря записи в БД означает лишь защиту до вытеснения из кэша
+            logger.warn("Could not persist idempotency key {}: {}", id, e.getMessage());
+        }
+        responses.put(id, response);
+        finish(id, response);
+    }
+
+    // Ответ не сохраняется (ошибка сервера, конфликт): повтор с тем же ключом выполнится заново
+    public void abandon(Long userId, String key) {
+        finish(id(userId, key), null);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void removeExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.info("Removed {} expired idempotency keys", removed);
+        }
+    }
+
+    private void finish(String id, StoredResponse response) {
+        CompletableFuture<StoredResponse> future = inFlight.remove(id);
+        if (future != null) {
+            future.complete(response);
+        }
+    }
+
+    private StoredResponse load(String id) {
+        return idempotencyRecordRepository.findById(id)
+                .filter(record -> record.getExpiresAt() == null || record.getExpiresAt().isAfter(LocalDateTime.now()))
+                .map(record -> new StoredResponse(record.getRequestHash(), record.getStatus(),
+                        record.getContentType(), record.getBody()))
+                .orElse(null);
+    }
+
+    private String id(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
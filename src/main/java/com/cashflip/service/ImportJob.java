@@ -0,0 +1,174 @@
+package com.cashflip.service;
+
+import com.cashflip.importer.StatementFormat;
+
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Состояние одного импорта выписки; обновляется фоновым потоком и читается запросами статуса
+public class ImportJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    // Храним не больше стольких сообщений об ошибочных строках
+    private static final int MAX_ERRORS = 100;
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final Long accountId;
+    private final Charset charset;
+    private final DuplicateDetector.Policy duplicatePolicy;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+
+    private volatile StatementFormat format;
+    private volatile Status status = Status.PENDING;
+    private volatile long bytesReceived;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+
+    public ImportJob(Long userId, Long accountId, StatementFormat format, Charset charset,
+                     DuplicateDetector.Policy duplicatePolicy) {
+        this.userId = userId;
+        this.accountId = accountId;
+        this.format = format;
+        this.charset = charset;
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    public void start(StatementFormat detectedFormat) {
+        format = detectedFormat;
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String reason) {
+        message = reason;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public void recordImported(int count) {
+        processedRows.addAndGet(count);
+        importedRows.addAndGet(count);
+    }
+
+    // Дубликаты, которые не записывались (REJECT, MERGE)
+    public void recordSkippedDuplicates(int count) {
+        processedRows.addAndGet(count);
+        duplicateRows.addAndGet(count);
+    }
+
+    // Дубликаты, записанные с пометкой (FLAG); сами строки учитываются в recordImported
+    public void recordFlaggedDuplicates(int count) {
+        duplicateRows.addAndGet(count);
+    }
+
+    public void recordError(long line, String error) {
+        processedRows.incrementAndGet();
+        failedRows.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Строка " + line + ": " + error);
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public DuplicateDetector.Policy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    public StatementFormat getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public void setBytesReceived(long bytesReceived) {
+        this.bytesReceived = bytesReceived;
+    }
+
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    public long getImportedRows() {
+        return importedRows.get();
+    }
+
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,125 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.ImportJobDTO;
+import com.cashflip.importer.StatementFormat;
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.security.CurrentUser;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Прием выписок: тело запроса сливается во временный файл с постоянным расходом памяти,
+// разбор и запись идут в фоне (ImportWorker), ход импорта доступен через статус задачи
+@Service
+public class ImportService {
+
+    private final ImportWorker importWorker;
+    private final AccountRepository accountRepository;
+    private final CurrentUser currentUser;
+    private final DuplicateDetector duplicateDetector;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${import.max-size-bytes:209715200}")
+    private long maxSizeBytes;
+
+    @Value("${import.job-retention-hours:24}")
+    private long jobRetentionHours;
+
+    public ImportService(ImportWorker importWorker, AccountRepository accountRepository, CurrentUser currentUser,
+                         DuplicateDetector duplicateDetector) {
+        this.importWorker = importWorker;
+        this.accountRepository = accountRepository;
+        this.currentUser = currentUser;
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    // duplicatePolicy - REJECT, MERGE или FLAG; null - политика из настроек
+    public ImportJobDTO startImport(Long accountId, StatementFormat format, Charset charset, String duplicatePolicy,
+                                   InputStream body) throws IOException {
+        DuplicateDetector.Policy policy = duplicateDetector.resolvePolicy(duplicatePolicy);
+        Long userId = currentUser.getId();
+        if (accountId == null || accountRepository.findByIdAndUser(accountId, currentUser.getReference()).isEmpty()) {
+            throw new AccessDeniedException("Счет не найден или не принадлежит пользователю");
+        }
+
+        ImportJob job = new ImportJob(userId, accountId, format, charset, policy);
+        Path file = Files.createTempFile("cashflip-import-", ".tmp");
+        try {
+            job.setBytesReceived(spool(body, file));
+            jobs.put(job.getId(), job);
+            importWorker.process(job, file);
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(file);
+            if (e instanceof TaskRejectedException) {
+                throw new IllegalStateException("Слишком много импортов в очереди, попробуйте позже", e);
+            }
+            throw e;
+        }
+        return toDTO(job);
+    }
+
+    public ImportJobDTO getJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null || !job.getUserId().equals(currentUser.getId())) {
+            return null;
+        }
+        return toDTO(job);
+    }
+
+    // Завершенные задачи хранятся ограниченное время
+    @Scheduled(fixedDelayString = "${import.cleanup-interval-ms:3600000}")
+    public void removeFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusHours(jobRetentionHours);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    private long spool(InputStream body, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxSizeBytes) {
+                    throw new IllegalArgumentException("Файл больше " + maxSizeBytes + " байт");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return total;
+    }
+
+    private ImportJobDTO toDTO(ImportJob job) {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus().name());
+        dto.setFormat(job.getFormat() != null ? job.getFormat().name() : null);
+        dto.setAccountId(job.getAccountId());
+        dto.setBytesReceived(job.getBytesReceived());
+        dto.setProcessedRows(job.getProcessedRows());
+        dto.setImportedRows(job.getImportedRows());
+        dto.setFailedRows(job.getFailedRows());
+        dto.setDuplicateRows(job.getDuplicateRows());
+        dto.setErrors(job.getErrors());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setMessage(job.getMessage());
+        return dto;
+    }
+}
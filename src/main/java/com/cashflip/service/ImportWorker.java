@@ -0,0 +1,205 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.Category;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
+import com.cashflip.entity.Transaction;
+import com.cashflip.importer.StatementFormat;
+import com.cashflip.importer.StatementParser;
+import com.cashflip.importer.StatementRecord;
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.repository.CategoryRepository;
+import com.cashflip.repository.TransactionJdbcRepository;
+import com.cashflip.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Фоновый разбор выписки: записи копятся в буфер фиксированного размера и пишутся пакетами,
+// каждый пакет - отдельная транзакция БД с одной дельтой баланса
+@Component
+public class ImportWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportWorker.class);
+
+    // Длина колонки description
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final AccountRepository accountRepository;
+    private final CategoryRepository categoryRepository;
+    private final UserRepository userRepository;
+    private final BalanceService balanceService;
+    private final TransactionSummaryCache summaryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final DuplicateDetector duplicateDetector;
+    private final ChangeLogService changeLogService;
+    private final LedgerWriteExecutor ledgerWriteExecutor;
+
+    @Value("${import.batch-size:1000}")
+    private int batchSize;
+
+    public ImportWorker(TransactionJdbcRepository transactionJdbcRepository,
+                        AccountRepository accountRepository,
+                        CategoryRepository categoryRepository,
+                        UserRepository userRepository,
+                        BalanceService balanceService,
+                        TransactionSummaryCache summaryCache,
+                        TransactionTemplate transactionTemplate,
+                        DuplicateDetector duplicateDetector,
+                        ChangeLogService changeLogService,
+                        LedgerWriteExecutor ledgerWriteExecutor) {
+        this.transactionJdbcRepository = transactionJdbcRepository;
+        this.accountRepository = accountRepository;
+        this.categoryRepository = categoryRepository;
+        this.userRepository = userRepository;
+        this.balanceService = balanceService;
+        this.summaryCache = summaryCache;
+        this.transactionTemplate = transactionTemplate;
+        this.duplicateDetector = duplicateDetector;
+        this.changeLogService = changeLogService;
+        this.ledgerWriteExecutor = ledgerWriteExecutor;
+    }
+
+    @Async("importExecutor")
+    public void process(ImportJob job, Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, job.getCharset())) {
+            StatementFormat format = job.getFormat() != null ? job.getFormat() : detectFormat(reader);
+            job.start(format);
+
+            // Категории пользователя читаются один раз на импорт
+            Map<String, Long> categoryIds = new HashMap<>();
+            for (Category category : categoryRepository.findByUser(userRepository.getReferenceById(job.getUserId()))) {
+                categoryIds.putIfAbsent(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+
+            List<StatementRecord> buffer = new ArrayList<>(batchSize);
+            StatementParser.forFormat(format).parse(reader, new StatementParser.Listener() {
+                @Override
+                public void onRecord(StatementRecord record) {
+                    buffer.add(record);
+                    if (buffer.size() >= batchSize) {
+                        write(job, buffer, categoryIds);
+                        buffer.clear();
+                    }
+                }
+
+                @Override
+                public void onError(long line, String message) {
+                    job.recordError(line, message);
+                }
+            });
+            if (!buffer.isEmpty()) {
+                write(job, buffer, categoryIds);
+            }
+
+            job.complete();
+            logger.info("Import {} finished: {} imported, {} failed", job.getId(), job.getImportedRows(), job.getFailedRows());
+        } catch (Exception e) {
+            logger.error("Import " + job.getId() + " failed: " + e.getMessage(), e);
+            job.fail(e.getMessage());
+        } finally {
+            summaryCache.invalidate(job.getUserId());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete import file {}", file);
+            }
+        }
+    }
+
+    // Дубликаты (уже записанные и повторы внутри пакета) при REJECT и MERGE пропускаются, при FLAG пишутся с пометкой.
+    // Пакет идет через очередь записи пользователя, чтобы не спорить за строку счета с его запросами
+    private void write(ImportJob job, List<StatementRecord> records, Map<String, Long> categoryIds) {
+        int[] skipped = new int[1];
+        int[] flagged = new int[1];
+        List<Transaction> written = ledgerWriteExecutor.callSeparately(job.getUserId(),
+                () -> transactionTemplate.execute(status -> {
+            balanceService.lockAccounts(job.getUserId(), List.of(job.getAccountId()));
+            List<Transaction> transactions = new ArrayList<>(records.size());
+            for (StatementRecord record : records) {
+                Long categoryId = record.category() != null
+                        ? categoryIds.get(record.category().toLowerCase(Locale.ROOT)) : null;
+                String description = truncate(record.description());
+                transactions.add(Transaction.builder()
+                        .amount(record.amount())
+                        .description(description)
+                        .date(record.date())
+                        .account(accountRepository.getReferenceById(job.getAccountId()))
+                        .category(categoryId != null ? categoryRepository.getReferenceById(categoryId) : null)
+                        .user(userRepository.getReferenceById(job.getUserId()))
+                        .fingerprint(DuplicateDetector.fingerprint(job.getAccountId(), record.date(), record.amount(), description))
+                        .build());
+            }
+
+            List<String> fingerprints = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                fingerprints.add(transaction.getFingerprint());
+            }
+            Map<String, Long> existingIds = new HashMap<>(
+                    duplicateDetector.findDuplicates(job.getUserId(), job.getAccountId(), fingerprints));
+
+            List<Transaction> accepted = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                Long existingId = existingIds.get(transaction.getFingerprint());
+                if (existingId != null && job.getDuplicatePolicy() != DuplicateDetector.Policy.FLAG) {
+                    skipped[0]++;
+                    continue;
+                }
+                // Id выдается до вставки, чтобы повтор внутри пакета мог сослаться на первый экземпляр
+                transaction.setId(transactionJdbcRepository.nextId());
+                if (existingId == null) {
+                    existingIds.put(transaction.getFingerprint(), transaction.getId());
+                } else {
+                    transaction.setDuplicateOf(existingId);
+                    flagged[0]++;
+                }
+                accepted.add(transaction);
+            }
+
+            transactionJdbcRepository.insertBatch(accepted);
+            balanceService.applyTransactions(accepted);
+            if (!accepted.isEmpty()) {
+                List<ChangeLogService.Change> changes = new ArrayList<>(accepted.size() + 1);
+                for (Transaction transaction : accepted) {
+                    changes.add(ChangeLogService.Change.upsert(EntityType.TRANSACTION, transaction.getId()));
+                }
+                changes.add(ChangeLogService.Change.upsert(EntityType.ACCOUNT, job.getAccountId()));
+                changeLogService.record(job.getUserId(), changes);
+            }
+            return accepted;
+        }));
+        List<String> recorded = new ArrayList<>(written.size());
+        for (Transaction transaction : written) {
+            recorded.add(transaction.getFingerprint());
+        }
+        duplicateDetector.record(job.getAccountId(), recorded);
+        job.recordImported(written.size());
+        job.recordSkippedDuplicates(skipped[0]);
+        job.recordFlaggedDuplicates(flagged[0]);
+    }
+
+    private StatementFormat detectFormat(BufferedReader reader) throws IOException {
+        char[] head = new char[1024];
+        reader.mark(head.length);
+        int read = reader.read(head);
+        reader.reset();
+        return StatementFormat.detect(read > 0 ? new String(head, 0, read) : "");
+    }
+
+    private String truncate(String value) {
+        return value != null && value.length() > MAX_DESCRIPTION_LENGTH ? value.substring(0, MAX_DESCRIPTION_LENGTH) : value;
+    }
+}
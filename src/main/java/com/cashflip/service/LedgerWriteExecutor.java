@@ -0,0 +1,264 @@
+package com.cashflip.service;
+
+import com.cashflip.security.CurrentUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Упорядоченная запись в журнал (ledger.write-queue.enabled=true): у каждого пользователя с ожидающими записями
+// своя очередь, ее разбирает один виртуальный поток, поэтому изменения одного пользователя идут по очереди,
+// а не наперегонки за строки accounts, а разные пользователи не ждут друг друга. Накопившиеся в очереди записи
+// фиксируются одной транзакцией; если одна из них падает, пачка откатывается и каждая запись выполняется отдельно.
+// Через очередь идут запросы к транзакциям и счетам, пакеты импорта и пересчеты балансов.
+// Вызывающий поток ждет фиксации своей записи и получает ее результат или исключение.
+@Component
+public class LedgerWriteExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerWriteExecutor.class);
+
+    // Запись, вызванная изнутри очереди, выполняется сразу: ожидание собственной очереди - взаимная блокировка
+    private static final ThreadLocal<Boolean> IN_QUEUE = ThreadLocal.withInitial(() -> false);
+
+    private final CurrentUser currentUser;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Очередь есть в карте, пока ее разбирают; добавление и изъятие записей идут под блокировкой ключа карты
+    private final Map<Long, Queue<Task<?>>> queues = new ConcurrentHashMap<>();
+    // Ограничение на число ожидающих записей всех пользователей
+    private final Semaphore pending;
+    private final DistributionSummary batchSizes;
+    private final Counter batchFallbacks;
+
+    @Value("${ledger.write-queue.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ledger.write-queue.batch-size:16}")
+    private int batchSize;
+
+    public LedgerWriteExecutor(CurrentUser currentUser,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${ledger.write-queue.max-pending:10000}") int maxPending) {
+        this.currentUser = currentUser;
+        this.transactionTemplate = transactionTemplate;
+        int capacity = Math.max(1, maxPending);
+        this.pending = new Semaphore(capacity);
+        this.batchSizes = DistributionSummary.builder("ledger.write.batch.size").register(meterRegistry);
+        this.batchFallbacks = Counter.builder("ledger.write.batch.fallbacks").register(meterRegistry);
+        Gauge.builder("ledger.write.pending", pending, permits -> capacity - permits.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("ledger.write.queues", queues, Map::size).register(meterRegistry);
+    }
+
+    // Выполняет изменение журнала текущего пользователя; без ledger.write-queue.enabled - сразу в вызывающем потоке.
+    // При переполнении очереди - RejectedExecutionException
+    public <T> T call(Supplier<T> write) {
+        if (!enabled || IN_QUEUE.get()) {
+            return write.get();
+        }
+        if (!pending.tryAcquire()) {
+            throw new RejectedExecutionException("Очередь записи переполнена");
+        }
+        return submit(currentUser.getId(), new Task<>(write, false));
+    }
+
+    public void run(Runnable write) {
+        call(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    // Запись в очереди пользователя, которая сама управляет своей транзакцией (пакет импорта, пересчет балансов):
+    // она не объединяется с соседними записями. Фоновые записи не отклоняются, а ждут места в очереди
+    public <T> T callSeparately(Long userId, Supplier<T> write) {
+        if (!enabled || IN_QUEUE.get()) {
+            return write.get();
+        }
+        pending.acquireUninterruptibly();
+        return submit(userId, new Task<>(write, true));
+    }
+
+    public void runSeparately(Long userId, Runnable write) {
+        callSeparately(userId, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+
+    private <T> T submit(Long userId, Task<T> task) {
+        boolean[] start = new boolean[1];
+        queues.compute(userId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                start[0] = true;
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (start[0]) {
+            executor.execute(() -> drain(userId));
+        }
+        return task.await();
+    }
+
+    // Очередь пользователя разбирает не больше одного виртуального потока - записи выполняются в порядке поступления
+    private void drain(Long userId) {
+        IN_QUEUE.set(true);
+        try {
+            for (List<Task<?>> batch = poll(userId); !batch.isEmpty(); batch = poll(userId)) {
+                try {
+                    runBatch(batch);
+                } catch (RuntimeException | Error e) {
+                    for (Task<?> task : batch) {
+                        task.fail(e);
+                    }
+                }
+            }
+        } finally {
+            IN_QUEUE.remove();
+        }
+    }
+
+    // Следующая пачка: подряд идущие обычные записи или одна отдельная. Пустая очередь удаляется из карты
+    // под той же блокировкой, под которой submit добавляет запись, поэтому запись не останется без потока
+    private List<Task<?>> poll(Long userId) {
+        List<Task<?>> batch = new ArrayList<>();
+        queues.computeIfPresent(userId, (id, queue) -> {
+            Task<?> head = queue.poll();
+            if (head == null) {
+                return null;
+            }
+            batch.add(head);
+            while (!head.separate && batch.size() < batchSize && queue.peek() != null && !queue.peek().separate) {
+                batch.add(queue.poll());
+            }
+            return queue;
+        });
+        pending.release(batch.size());
+        return batch;
+    }
+
+    private void runBatch(List<Task<?>> batch) {
+        batchSizes.record(batch.size());
+        if (batch.size() == 1) {
+            runAlone(batch.get(0));
+            return;
+        }
+        try {
+            Boolean committed = transactionTemplate.execute(status -> {
+                for (Task<?> task : batch) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException | Error e) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(committed)) {
+                for (Task<?> task : batch) {
+                    task.complete();
+                }
+                return;
+            }
+        } catch (RuntimeException e) {
+            // Ошибка при фиксации пачки (например, нарушение ограничения при flush)
+            logger.debug("Ledger write batch failed at commit: {}", e.getMessage());
+        }
+        // Пачка откатилась целиком: каждая запись получает собственный результат
+        batchFallbacks.increment();
+        for (Task<?> task : batch) {
+            runAlone(task);
+        }
+    }
+
+    private void runAlone(Task<?> task) {
+        try {
+            if (task.separate) {
+                task.run();
+            } else {
+                transactionTemplate.executeWithoutResult(status -> task.run());
+            }
+            task.complete();
+        } catch (RuntimeException | Error e) {
+            task.fail(e);
+        }
+    }
+
+    private static final class Task<T> {
+
+        private final Supplier<T> write;
+        private final boolean separate;
+        private final SecurityContext securityContext = SecurityContextHolder.getContext();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        Task(Supplier<T> write, boolean separate) {
+            this.write = write;
+            this.separate = separate;
+        }
+
+        // Сервисы определяют пользователя по контексту безопасности, поэтому он переносится в поток очереди
+        void run() {
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                result = write.get();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        // Результат отдается только после фиксации: до нее пачка еще может откатиться
+        void complete() {
+            future.complete(result);
+        }
+
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+
+        T await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cashflip.service;
+
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Плановая сверка месячных итогов с таблицей транзакций
+@Component
+public class MonthlyRollupRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlyRollupRebuildJob.class);
+
+    private final MonthlyRollupService monthlyRollupService;
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionSummaryCache summaryCache;
+
+    @Value("${rollup.verification.enabled:true}")
+    private boolean enabled;
+
+    public MonthlyRollupRebuildJob(MonthlyRollupService monthlyRollupService, UserRepository userRepository,
+                                   AccountRepository accountRepository, TransactionSummaryCache summaryCache) {
+        this.monthlyRollupService = monthlyRollupService;
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.summaryCache = summaryCache;
+    }
+
+    // Первичное заполнение итогов для пользователей, у которых есть счета с rollups_indexed = false.
+    // Отметка ставится на каждого пользователя отдельно: запись до запуска прохода, ошибка на одном пользователе
+    // или перезапуск посреди прохода не оставляют итоги неполными - такие пользователи останутся в списке.
+    // До построения итоги за целые месяцы считаются по таблице транзакций (TransactionSummaryService)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> userIds = accountRepository.findUserIdsWithoutRollupIndex();
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        int indexed = 0;
+        for (Long userId : userIds) {
+            try {
+                monthlyRollupService.rebuild(userId);
+                summaryCache.invalidate(userId);
+                indexed++;
+            } catch (Exception e) {
+                logger.error("Monthly rollup backfill failed for user " + userId + ": " + e.getMessage(), e);
+            }
+        }
+        logger.info("Monthly rollup backfill finished: {} of {} users indexed", indexed, userIds.size());
+    }
+
+    @Scheduled(cron = "${rollup.verification.cron:0 0 4 * * SUN}")
+    public void verifyAllRollups() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> userIds = userRepository.findAllIds();
+        int rebuilt = 0;
+        for (Long userId : userIds) {
+            try {
+                if (!monthlyRollupService.verify(userId)) {
+                    logger.warn("Monthly rollups of user {} did not match transactions and were rebuilt", userId);
+                    summaryCache.invalidate(userId);
+                    rebuilt++;
+                }
+            } catch (Exception e) {
+                logger.error("Monthly rollup verification failed for user " + userId + ": " + e.getMessage(), e);
+            }
+        }
+        logger.info("Monthly rollup verification finished: {} users checked, {} rebuilt", userIds.size(), rebuilt);
+    }
+}
@@ -0,0 +1,191 @@
+package com.cashflip.service;
+
+import com.cashflip.entity.MonthlyRollup;
+import com.cashflip.entity.Transaction;
+import com.cashflip.repository.AccountRepository;
+import com.cashflip.repository.MonthlyRollupRepository;
+import com.cashflip.repository.TransactionRepository;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Месячные итоги, обновляемые в той же транзакции БД, что и запись операции
+@Service
+public class MonthlyRollupService {
+
+    private final MonthlyRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final EntityCacheEvictor entityCacheEvictor;
+    // Перестроение идет в собственной транзакции: блокировка счетов должна быть ее первым запросом
+    private final TransactionTemplate rebuildTransaction;
+
+    public MonthlyRollupService(MonthlyRollupRepository rollupRepository,
+                                TransactionRepository transactionRepository,
+                                AccountRepository accountRepository,
+                                EntityCacheEvictor entityCacheEvictor,
+                                TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.rebuildTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Добавляет (sign = 1) или вычитает (sign = -1) транзакцию из итогов ее месяца
+    @Transactional
+    public void apply(Transaction transaction, int sign) {
+        if (transaction.getDate() == null || transaction.getAmount() == null
+                || transaction.getAccountId() == null || transaction.getUser() == null) {
+            return;
+        }
+
+        BigDecimal amount = sign < 0 ? transaction.getAmount().negate() : transaction.getAmount();
+        boolean income = transaction.getAmount().signum() > 0;
+        Long categoryId = transaction.getCategory() != null
+                ? transaction.getCategory().getId() : MonthlyRollup.NO_CATEGORY;
+
+        rollupRepository.addDelta(
+                transaction.getUser().getId(),
+                transaction.getAccountId(),
+                categoryId,
+                monthOf(transaction.getDate().toLocalDate()),
+                income ? amount : BigDecimal.ZERO,
+                income ? BigDecimal.ZERO : amount,
+                sign < 0 ? -1 : 1);
+    }
+
+    // Добавляет пачку новых транзакций: одна запись на счет, категорию и месяц
+    @Transactional
+    public void applyAll(List<Transaction> transactions) {
+        Map<String, MonthlyRollup> deltas = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getDate() == null || transaction.getAmount() == null
+                    || transaction.getAccountId() == null || transaction.getUser() == null) {
+                continue;
+            }
+            Long categoryId = transaction.getCategory() != null
+                    ? transaction.getCategory().getId() : MonthlyRollup.NO_CATEGORY;
+            LocalDate month = monthOf(transaction.getDate().toLocalDate());
+            boolean income = transaction.getAmount().signum() > 0;
+
+            MonthlyRollup delta = deltas.computeIfAbsent(key(transaction.getAccountId(), categoryId, month),
+                    k -> new MonthlyRollup(transaction.getUser().getId(), transaction.getAccountId(), categoryId, month,
+                            BigDecimal.ZERO, BigDecimal.ZERO, 0L));
+            if (income) {
+                delta.setIncome(delta.getIncome().add(transaction.getAmount()));
+            } else {
+                delta.setExpense(delta.getExpense().add(transaction.getAmount()));
+            }
+            delta.setTransactionCount(delta.getTransactionCount() + 1);
+        }
+
+        for (MonthlyRollup delta : deltas.values()) {
+            rollupRepository.addDelta(delta.getUserId(), delta.getAccountId(), delta.getCategoryId(), delta.getMonth(),
+                    delta.getIncome(), delta.getExpense(), delta.getTransactionCount());
+        }
+    }
+
+    // Перестраивает итоги пользователя с нуля по таблице транзакций и отмечает его счета проиндексированными
+    public void rebuild(Long userId) {
+        rebuildTransaction.executeWithoutResult(status -> {
+            List<Long> accountIds = accountRepository.lockByUserId(userId);
+            replace(userId);
+            accountRepository.markRollupsIndexed(userId);
+            entityCacheEvictor.evictAccounts(accountIds);
+        });
+    }
+
+    // Сверяет хранимые итоги с пересчитанными по транзакциям и перестраивает их при расхождении.
+    // Первая сверка идет без блокировок: запись между двумя чтениями дает лишь ложное расхождение. Перестроение -
+    // в своей транзакции под блокировкой строк счетов пользователя, которую записи берут первой: сверка
+    // повторяется по снимку после всех зафиксированных записей, и новые дельты не теряются при удалении строк
+    public boolean verify(Long userId) {
+        if (matches(userId)) {
+            return true;
+        }
+        return Boolean.TRUE.equals(rebuildTransaction.execute(status -> {
+            List<Long> accountIds = accountRepository.lockByUserId(userId);
+            if (matches(userId)) {
+                return true;
+            }
+            replace(userId);
+            accountRepository.markRollupsIndexed(userId);
+            entityCacheEvictor.evictAccounts(accountIds);
+            return false;
+        }));
+    }
+
+    // Итоги за целые месяцы можно брать из таблицы итогов, только если все счета пользователя проиндексированы
+    public boolean isIndexed(Long userId) {
+        return !accountRepository.existsByUserIdAndRollupsIndexedFalse(userId);
+    }
+
+    private void replace(Long userId) {
+        rollupRepository.deleteByUserId(userId);
+
+        List<MonthlyRollup> rollups = new ArrayList<>();
+        for (TransactionRepository.MonthlyTotal total : transactionRepository.summarizeMonthlyByAccountAndCategory(userId)) {
+            rollups.add(new MonthlyRollup(
+                    userId,
+                    total.getAccountId(),
+                    total.getCategoryId() != null ? total.getCategoryId() : MonthlyRollup.NO_CATEGORY,
+                    LocalDate.of(total.getYear(), total.getMonth(), 1),
+                    total.getIncome(),
+                    total.getExpense(),
+                    total.getCount()));
+        }
+        rollupRepository.saveAll(rollups);
+    }
+
+    private boolean matches(Long userId) {
+        Map<String, MonthlyRollup> stored = new HashMap<>();
+        for (MonthlyRollup rollup : rollupRepository.findByUserId(userId)) {
+            if (rollup.getTransactionCount() != 0) {
+                stored.put(key(rollup.getAccountId(), rollup.getCategoryId(), rollup.getMonth()), rollup);
+            }
+        }
+
+        List<TransactionRepository.MonthlyTotal> totals = transactionRepository.summarizeMonthlyByAccountAndCategory(userId);
+        if (totals.size() != stored.size()) {
+            return false;
+        }
+        for (TransactionRepository.MonthlyTotal total : totals) {
+            MonthlyRollup rollup = stored.get(key(
+                    total.getAccountId(),
+                    total.getCategoryId() != null ? total.getCategoryId() : MonthlyRollup.NO_CATEGORY,
+                    LocalDate.of(total.getYear(), total.getMonth(), 1)));
+            if (rollup == null
+                    || rollup.getIncome().compareTo(total.getIncome()) != 0
+                    || rollup.getExpense().compareTo(total.getExpense()) != 0
+                    || !rollup.getTransactionCount().equals(total.getCount())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Transactional
+    public void deleteForAccount(Long accountId) {
+        rollupRepository.deleteByAccountId(accountId);
+    }
+
+    public static LocalDate monthOf(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private String key(Long accountId, Long categoryId, LocalDate month) {
+        return accountId + "|" + categoryId + "|" + month;
+    }
+}
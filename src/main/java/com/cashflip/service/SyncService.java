@@ -0,0 +1,126 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.SyncDTO;
+import com.cashflip.entity.ChangeLogEntry;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
+import com.cashflip.entity.ChangeLogEntry.Operation;
+import com.cashflip.repository.ChangeLogRepository;
+import com.cashflip.repository.SyncCursorRepository;
+import com.cashflip.security.CurrentUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Дельта-синхронизация клиента: только сущности, измененные или удаленные после курсора.
+// Без курсора или с курсором старше журнала отдается полная выгрузка с reset = true.
+@Service
+public class SyncService {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final SyncCursorRepository syncCursorRepository;
+    private final TransactionService transactionService;
+    private final AccountService accountService;
+    private final CategoryService categoryService;
+    private final CurrentUser currentUser;
+
+    // Если изменений больше, дешевле отдать полную выгрузку
+    @Value("${sync.max-changes:10000}")
+    private int maxChanges;
+
+    public SyncService(ChangeLogRepository changeLogRepository,
+                       SyncCursorRepository syncCursorRepository,
+                       TransactionService transactionService,
+                       AccountService accountService,
+                       CategoryService categoryService,
+                       CurrentUser currentUser) {
+        this.changeLogRepository = changeLogRepository;
+        this.syncCursorRepository = syncCursorRepository;
+        this.transactionService = transactionService;
+        this.accountService = accountService;
+        this.categoryService = categoryService;
+        this.currentUser = currentUser;
+    }
+
+    // Чтение в одной транзакции: курсор и данные согласованы между собой
+    @Transactional(readOnly = true)
+    public SyncDTO getChanges(Long since) {
+        if (since != null && since < 0) {
+            throw new IllegalArgumentException("Некорректный курсор: " + since);
+        }
+        Long userId = currentUser.getId();
+        long current = syncCursorRepository.findVersion(userId).orElse(0L);
+        long pruned = syncCursorRepository.findPrunedVersion(userId).orElse(0L);
+
+        // Курсор из будущего (например, после восстановления БД) тоже требует полной выгрузки
+        if (since == null || since < pruned || since > current) {
+            return snapshot(current);
+        }
+        if (since == current) {
+            return delta(since, List.of());
+        }
+
+        List<ChangeLogEntry> entries = changeLogRepository.findAfter(userId, since, Limit.of(maxChanges + 1));
+        if (entries.size() > maxChanges) {
+            return snapshot(current);
+        }
+        return delta(since, entries);
+    }
+
+    private SyncDTO snapshot(long cursor) {
+        SyncDTO sync = new SyncDTO();
+        sync.setCursor(cursor);
+        sync.setReset(true);
+        sync.setTransactions(transactionService.getUserTransactions());
+        sync.setAccounts(accountService.getUserAccounts());
+        sync.setCategories(categoryService.getUserCategories());
+        sync.setDeletedTransactionIds(List.of());
+        sync.setDeletedAccountIds(List.of());
+        sync.setDeletedCategoryIds(List.of());
+        return sync;
+    }
+
+    private SyncDTO delta(long since, List<ChangeLogEntry> entries) {
+        // Для каждой сущности важна только последняя операция
+        Map<EntityType, Map<Long, Operation>> latest = new EnumMap<>(EntityType.class);
+        for (EntityType type : EntityType.values()) {
+            latest.put(type, new LinkedHashMap<>());
+        }
+        long cursor = since;
+        for (ChangeLogEntry entry : entries) {
+            latest.get(entry.getEntityType()).put(entry.getEntityId(), entry.getOperation());
+            cursor = Math.max(cursor, entry.getVersion());
+        }
+
+        Long userId = currentUser.getId();
+        SyncDTO sync = new SyncDTO();
+        sync.setCursor(cursor);
+        sync.setReset(false);
+        sync.setTransactions(transactionService.getUserTransactionsByIds(
+                userId, idsWith(latest.get(EntityType.TRANSACTION), Operation.UPSERT)));
+        sync.setAccounts(accountService.getUserAccountsByIds(
+                userId, idsWith(latest.get(EntityType.ACCOUNT), Operation.UPSERT)));
+        sync.setCategories(categoryService.getUserCategoriesByIds(
+                userId, idsWith(latest.get(EntityType.CATEGORY), Operation.UPSERT)));
+        sync.setDeletedTransactionIds(idsWith(latest.get(EntityType.TRANSACTION), Operation.DELETE));
+        sync.setDeletedAccountIds(idsWith(latest.get(EntityType.ACCOUNT), Operation.DELETE));
+        sync.setDeletedCategoryIds(idsWith(latest.get(EntityType.CATEGORY), Operation.DELETE));
+        return sync;
+    }
+
+    private List<Long> idsWith(Map<Long, Operation> operations, Operation operation) {
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, Operation> entry : operations.entrySet()) {
+            if (entry.getValue() == operation) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+}
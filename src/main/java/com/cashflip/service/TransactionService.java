@@ -1,97 +1,154 @@
 package com.cashflip.service;
 
+import com.cashflip.dto.TransactionBatchResultDTO;
 import com.cashflip.dto.TransactionDTO;
+import com.cashflip.dto.TransactionPageDTO;
 import com.cashflip.entity.Account;
 import com.cashflip.entity.Category;
+import com.cashflip.entity.ChangeLogEntry.EntityType;
 import com.cashflip.entity.Transaction;
 import com.cashflip.entity.User;
 import com.cashflip.repository.AccountRepository;
 import com.cashflip.repository.CategoryRepository;
+import com.cashflip.repository.TransactionJdbcRepository;
 import com.cashflip.repository.TransactionRepository;
-import com.cashflip.repository.UserRepository;
+import com.cashflip.security.CurrentUser;
 
 import jakarta.transaction.Transactional;
 
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class TransactionService {
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
     private final CategoryRepository categoryRepository;
-    private final UserRepository userRepository;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final CurrentUser currentUser;
     
-    // Добавить AccountService
-    private final AccountService accountService;
+    // Максимальный размер страницы при постраничном выводе
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    // Максимальное число транзакций в одном пакетном запросе
+    private static final int MAX_BATCH_SIZE = 10_000;
+    
+    // Инкрементальное обновление балансов вместо полного пересчета
+    private final BalanceService balanceService;
+    private final TransactionSummaryCache summaryCache;
+    private final MonthlyRollupService monthlyRollupService;
+    private final DuplicateDetector duplicateDetector;
+    private final ChangeLogService changeLogService;
     
     // Исправленный конструктор для внедрения всех зависимостей
     public TransactionService(
             TransactionRepository transactionRepository, 
             CategoryRepository categoryRepository,
+            TransactionJdbcRepository transactionJdbcRepository,
             AccountRepository accountRepository, 
-            UserRepository userRepository,
-            AccountService accountService) {
+            CurrentUser currentUser,
+            BalanceService balanceService,
+            TransactionSummaryCache summaryCache,
+            MonthlyRollupService monthlyRollupService,
+            DuplicateDetector duplicateDetector,
+            ChangeLogService changeLogService) {
         this.transactionRepository = transactionRepository;
         this.categoryRepository = categoryRepository;
+        this.transactionJdbcRepository = transactionJdbcRepository;
         this.accountRepository = accountRepository;
-        this.userRepository = userRepository;
-        this.accountService = accountService;
+        this.currentUser = currentUser;
+        this.balanceService = balanceService;
+        this.summaryCache = summaryCache;
+        this.monthlyRollupService = monthlyRollupService;
+        this.duplicateDetector = duplicateDetector;
+        this.changeLogService = changeLogService;
     }
 
     @Transactional
     public TransactionDTO createTransaction(TransactionDTO transactionDTO) {
+        return createTransaction(transactionDTO, null);
+    }
+    
+    // duplicatePolicy - REJECT, MERGE или FLAG; null - политика из настроек
+    @Transactional
+    public TransactionDTO createTransaction(TransactionDTO transactionDTO, String duplicatePolicy) {
+        DuplicateDetector.Policy policy = duplicateDetector.resolvePolicy(duplicatePolicy);
         try {
-            String email = SecurityContextHolder.getContext().getAuthentication().getName();
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
-                    
-            // Находим счет
-            Account account = accountRepository.findById(transactionDTO.getAccountId())
-                    .orElseThrow(() -> new RuntimeException("Счет не найден"));
-            
-            // Проверяем принадлежность счета пользователю
-            if (!account.getUser().getId().equals(user.getId())) {
-                throw new RuntimeException("Счет не принадлежит пользователю");
+            Long userId = currentUser.getId();
+            // Строка счета блокируется раньше вставки транзакции (см. BalanceService.lockAccounts)
+            if (!balanceService.lockAccounts(userId, Collections.singletonList(transactionDTO.getAccountId()))
+                    .contains(transactionDTO.getAccountId())) {
+                throw new AccessDeniedException("Счет не найден или не принадлежит пользователю");
             }
+            String categoryName = transactionDTO.getCategory() != null && !transactionDTO.getCategory().isEmpty()
+                    ? transactionDTO.getCategory() : null;
+            String description = transactionDTO.getDescription() != null
+                    ? transactionDTO.getDescription() : transactionDTO.getNote();
             
-            // Находим категорию по имени или идентификатору
-            Category category = null;
-            if (transactionDTO.getCategoryId() != null) {
-                category = categoryRepository.findById(transactionDTO.getCategoryId())
-                        .orElse(null);
-            } else if (transactionDTO.getCategory() != null && !transactionDTO.getCategory().isEmpty()) {
-                category = categoryRepository.findByNameAndUser(transactionDTO.getCategory(), user)
-                        .orElse(null);
+            // Повтор запроса с мобильного клиента или повторный импорт не должен проводиться дважды
+            String fingerprint = DuplicateDetector.fingerprint(
+                    transactionDTO.getAccountId(), transactionDTO.getDate(), transactionDTO.getAmount(), description);
+            Long existingId = duplicateDetector.findDuplicate(userId, transactionDTO.getAccountId(), fingerprint);
+            if (existingId != null && policy == DuplicateDetector.Policy.REJECT) {
+                throw new DuplicateTransactionException(existingId);
+            }
+            if (existingId != null && policy == DuplicateDetector.Policy.MERGE) {
+                return transactionRepository.findDTOById(existingId)
+                        .orElseThrow(() -> new RuntimeException("Транзакция с ID " + existingId + " не найдена"));
             }
             
-            // Создаем транзакцию
-            Transaction transaction = new Transaction();
-            transaction.setAmount(transactionDTO.getAmount());
-            transaction.setDescription(transactionDTO.getDescription() != null ? 
-                                       transactionDTO.getDescription() : 
-                                       transactionDTO.getNote());
-            transaction.setDate(transactionDTO.getDate());
-            transaction.setAccount(account);
-            transaction.setCategory(category);
-            transaction.setUser(user);
+            // Счет проверен при блокировке, принадлежность категории проверяет сама вставка
+            Long id = transactionJdbcRepository.insertWithCategory(
+                    userId,
+                    transactionDTO.getAccountId(),
+                    transactionDTO.getCategoryId(),
+                    categoryName,
+                    transactionDTO.getAmount(),
+                    description,
+                    transactionDTO.getDate(),
+                    fingerprint,
+                    existingId);
+            duplicateDetector.record(transactionDTO.getAccountId(), fingerprint);
             
-            // Обновляем баланс счета
-            account.setBalance(account.getBalance().add(transactionDTO.getAmount()));
-            accountRepository.save(account);
+            TransactionDTO createdTransaction = transactionRepository.findDTOById(id)
+                    .orElseThrow(() -> new RuntimeException("Транзакция с ID " + id + " не найдена"));
+            createdTransaction.setDuplicateOf(existingId);
             
-            // Сохраняем транзакцию
-            Transaction savedTransaction = transactionRepository.save(transaction);
+            // Проводка по ссылкам на счет, категорию и пользователя: сами сущности не читаются
+            Transaction posted = Transaction.builder()
+                    .id(id)
+                    .amount(createdTransaction.getAmount())
+                    .date(createdTransaction.getDate())
+                    .account(accountRepository.getReferenceById(createdTransaction.getAccountId()))
+                    .category(createdTransaction.getCategoryId() != null
+                            ? categoryRepository.getReferenceById(createdTransaction.getCategoryId()) : null)
+                    .user(currentUser.getReference())
+                    .build();
             
-            // Пересчитываем баланс счетов
-            accountService.recalculateBalances(user.getId());
+            // Обновляем баланс счета на сумму транзакции
+            balanceService.applyTransaction(posted);
+            summaryCache.invalidate(userId);
+            changeLogService.record(userId,
+                    ChangeLogService.Change.upsert(EntityType.TRANSACTION, id),
+                    ChangeLogService.Change.upsert(EntityType.ACCOUNT, createdTransaction.getAccountId()));
             
-            return mapToDTO(savedTransaction);
+            return createdTransaction;
+        } catch (AccessDeniedException | DuplicateTransactionException e) {
+            throw e;
         } catch (Exception e) {
             // Логирование ошибки
             System.err.println("Error creating transaction: " + e.getMessage());
@@ -99,43 +156,185 @@ public class TransactionService {
         }
     }
     
+    @Transactional
+    public TransactionBatchResultDTO createTransactions(List<TransactionDTO> transactionDTOs) {
+        return createTransactions(transactionDTOs, null);
+    }
+    
+    // Пакетное создание: счета и категории читаются один раз на пакет, строки вставляются пакетами JDBC,
+    // баланс каждого счета меняется одной дельтой. Ошибки проверки не мешают остальным элементам.
+    // Дубликаты ищутся одним запросом на счет (после фильтра Блума) и внутри самого пакета.
+    @Transactional
+    public TransactionBatchResultDTO createTransactions(List<TransactionDTO> transactionDTOs, String duplicatePolicy) {
+        if (transactionDTOs.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Не больше " + MAX_BATCH_SIZE + " транзакций в одном пакете");
+        }
+        DuplicateDetector.Policy policy = duplicateDetector.resolvePolicy(duplicatePolicy);
+        
+        User user = currentUser.getReference();
+        // Счета пакета блокируются до чтения и вставки (см. BalanceService.lockAccounts)
+        List<Long> accountIds = new ArrayList<>();
+        for (TransactionDTO dto : transactionDTOs) {
+            if (dto != null) {
+                accountIds.add(dto.getAccountId());
+            }
+        }
+        balanceService.lockAccounts(user.getId(), accountIds);
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findByUserId(user.getId())) {
+            accounts.put(account.getId(), account);
+        }
+        Map<Long, Category> categoriesById = new HashMap<>();
+        Map<String, Category> categoriesByName = new HashMap<>();
+        for (Category category : categoryRepository.findByUser(user)) {
+            categoriesById.put(category.getId(), category);
+            categoriesByName.putIfAbsent(category.getName(), category);
+        }
+        
+        List<TransactionBatchResultDTO.Item> items = new ArrayList<>(transactionDTOs.size());
+        List<Transaction> candidates = new ArrayList<>();
+        List<Integer> candidateIndexes = new ArrayList<>();
+        Map<Long, List<String>> fingerprintsByAccount = new HashMap<>();
+        for (int i = 0; i < transactionDTOs.size(); i++) {
+            TransactionDTO dto = transactionDTOs.get(i);
+            Account account = dto != null && dto.getAccountId() != null ? accounts.get(dto.getAccountId()) : null;
+            if (dto == null || dto.getAmount() == null) {
+                items.add(TransactionBatchResultDTO.Item.failed(i, "Не указана сумма"));
+                continue;
+            }
+            if (account == null) {
+                items.add(TransactionBatchResultDTO.Item.failed(i, "Счет не найден или не принадлежит пользователю"));
+                continue;
+            }
+            
+            Category category = null;
+            if (dto.getCategoryId() != null) {
+                category = categoriesById.get(dto.getCategoryId());
+            } else if (dto.getCategory() != null && !dto.getCategory().isEmpty()) {
+                category = categoriesByName.get(dto.getCategory());
+            }
+            
+            String description = dto.getDescription() != null ? dto.getDescription() : dto.getNote();
+            String fingerprint = DuplicateDetector.fingerprint(account.getId(), dto.getDate(), dto.getAmount(), description);
+            fingerprintsByAccount.computeIfAbsent(account.getId(), id -> new ArrayList<>()).add(fingerprint);
+            candidates.add(Transaction.builder()
+                    .amount(dto.getAmount())
+                    .description(description)
+                    .date(dto.getDate())
+                    .account(account)
+                    .category(category)
+                    .user(user)
+                    .fingerprint(fingerprint)
+                    .build());
+            candidateIndexes.add(i);
+            items.add(null);
+        }
+        
+        Map<String, Long> existingIds = new HashMap<>();
+        for (Map.Entry<Long, List<String>> entry : fingerprintsByAccount.entrySet()) {
+            existingIds.putAll(duplicateDetector.findDuplicates(user.getId(), entry.getKey(), entry.getValue()));
+        }
+        
+        // Id выдаются до вставки, чтобы повтор внутри пакета мог сослаться на первый экземпляр
+        List<Transaction> transactions = new ArrayList<>();
+        int failed = 0;
+        int duplicates = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            Transaction transaction = candidates.get(c);
+            int index = candidateIndexes.get(c);
+            Long existingId = existingIds.get(transaction.getFingerprint());
+            if (existingId == null) {
+                transaction.setId(transactionJdbcRepository.nextId());
+                existingIds.put(transaction.getFingerprint(), transaction.getId());
+                transactions.add(transaction);
+                items.set(index, TransactionBatchResultDTO.Item.created(index, transaction.getId()));
+                continue;
+            }
+            
+            duplicates++;
+            switch (policy) {
+                case REJECT -> {
+                    items.set(index, TransactionBatchResultDTO.Item.rejected(index, existingId));
+                    failed++;
+                }
+                case MERGE -> items.set(index, TransactionBatchResultDTO.Item.merged(index, existingId));
+                case FLAG -> {
+                    transaction.setId(transactionJdbcRepository.nextId());
+                    transaction.setDuplicateOf(existingId);
+                    transactions.add(transaction);
+                    items.set(index, TransactionBatchResultDTO.Item.flagged(index, transaction.getId(), existingId));
+                }
+            }
+        }
+        
+        transactionJdbcRepository.insertBatch(transactions);
+        balanceService.applyTransactions(transactions);
+        Map<Long, List<String>> recorded = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            recorded.computeIfAbsent(transaction.getAccountId(), id -> new ArrayList<>()).add(transaction.getFingerprint());
+        }
+        recorded.forEach(duplicateDetector::record);
+        if (!transactions.isEmpty()) {
+            summaryCache.invalidate(user.getId());
+            List<ChangeLogService.Change> changes = new ArrayList<>(transactions.size() + 1);
+            for (Transaction transaction : transactions) {
+                changes.add(ChangeLogService.Change.upsert(EntityType.TRANSACTION, transaction.getId()));
+                changes.add(ChangeLogService.Change.upsert(EntityType.ACCOUNT, transaction.getAccountId()));
+            }
+            changeLogService.record(user.getId(), changes);
+        }
+        
+        return new TransactionBatchResultDTO(transactions.size(),
+                transactionDTOs.size() - candidates.size() + failed, duplicates, items);
+    }
+    
     @Transactional
     public TransactionDTO updateTransaction(Long id, TransactionDTO transactionDTO) {
         // Получаем текущего пользователя
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
                 
-        Transaction existingTransaction = transactionRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Транзакция с ID " + id + " не найдена"));
+        Transaction existingTransaction = lockTransaction(id, user.getId(), transactionDTO.getAccountId());
         
         // Проверка принадлежности транзакции пользователю
         if (!existingTransaction.getUser().getId().equals(user.getId())) {
             throw new RuntimeException("Нет прав на редактирование этой транзакции");
         }
         
-        // Если изменилась сумма или счет, обновляем балансы
-        if (!existingTransaction.getAmount().equals(transactionDTO.getAmount()) ||
-            !existingTransaction.getAccount().getId().equals(transactionDTO.getAccountId())) {
-            
-            // Отменяем старую транзакцию (вычитаем сумму из старого счета)
-            Account oldAccount = existingTransaction.getAccount();
-            oldAccount.setBalance(oldAccount.getBalance().subtract(existingTransaction.getAmount()));
-            accountRepository.save(oldAccount);
-            
-            // Применяем новую транзакцию (добавляем сумму к новому счету)
-            Account newAccount = accountRepository.findByIdAndUser(transactionDTO.getAccountId(), user)
-                .orElseThrow(() -> new RuntimeException("Счет с ID " + transactionDTO.getAccountId() + " не найден или не принадлежит пользователю"));
-            newAccount.setBalance(newAccount.getBalance().add(transactionDTO.getAmount()));
-            accountRepository.save(newAccount);
-        }
+        // Снимок прежнего состояния для отмены его вклада в балансы и месячные итоги
+        Transaction previous = Transaction.builder()
+            .amount(existingTransaction.getAmount())
+            .date(existingTransaction.getDate())
+            .account(existingTransaction.getAccount())
+            .category(existingTransaction.getCategory())
+            .user(existingTransaction.getUser())
+            .build();
         
         // Обновляем данные транзакции
         updateTransactionFields(existingTransaction, transactionDTO, user);
+        existingTransaction.setFingerprint(DuplicateDetector.fingerprint(existingTransaction.getAccountId(),
+            existingTransaction.getDate(), existingTransaction.getAmount(), existingTransaction.getDescription()));
         Transaction updatedTransaction = transactionRepository.save(existingTransaction);
+        duplicateDetector.record(updatedTransaction.getAccountId(), updatedTransaction.getFingerprint());
+        
+        // Если изменилась сумма, счет или дата, переносим дельту между балансами, дневным индексом и месячными итогами
+        boolean ledgerChanged = previous.getAmount().compareTo(updatedTransaction.getAmount()) != 0 ||
+            !previous.getAccountId().equals(updatedTransaction.getAccountId()) ||
+            !Objects.equals(previous.getDate(), updatedTransaction.getDate());
+        boolean categoryChanged = !Objects.equals(categoryIdOf(previous), categoryIdOf(updatedTransaction));
         
-        // Пересчитываем баланс счетов
-        accountService.recalculateBalances(user.getId());
+        if (ledgerChanged) {
+            balanceService.revertTransaction(previous);
+            balanceService.applyTransaction(updatedTransaction);
+        } else if (categoryChanged) {
+            // Баланс не меняется, но сумма переходит в итоги другой категории
+            monthlyRollupService.apply(previous, -1);
+            monthlyRollupService.apply(updatedTransaction, 1);
+        }
+        summaryCache.invalidate(user.getId());
+        changeLogService.record(user.getId(),
+            ChangeLogService.Change.upsert(EntityType.TRANSACTION, updatedTransaction.getId()),
+            ChangeLogService.Change.upsert(EntityType.ACCOUNT, previous.getAccountId()),
+            ChangeLogService.Change.upsert(EntityType.ACCOUNT, updatedTransaction.getAccountId()));
         
         return mapToDTO(updatedTransaction);
     }
@@ -143,12 +342,9 @@ public class TransactionService {
     @Transactional
     public void deleteTransaction(Long id) {
         // Получаем текущего пользователя
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
                 
-        Transaction transaction = transactionRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Транзакция с ID " + id + " не найдена"));
+        Transaction transaction = lockTransaction(id, user.getId(), null);
             
         // Проверка принадлежности транзакции пользователю
         if (!transaction.getUser().getId().equals(user.getId())) {
@@ -156,37 +352,98 @@ public class TransactionService {
         }
         
         // Отменяем влияние транзакции на баланс счета
-        Account account = transaction.getAccount();
-        account.setBalance(account.getBalance().subtract(transaction.getAmount()));
-        accountRepository.save(account);
+        balanceService.revertTransaction(transaction);
         
         // Удаляем транзакцию
         transactionRepository.delete(transaction);
+        summaryCache.invalidate(user.getId());
+        changeLogService.record(user.getId(),
+            ChangeLogService.Change.delete(EntityType.TRANSACTION, id),
+            ChangeLogService.Change.upsert(EntityType.ACCOUNT, transaction.getAccountId()));
+    }
+    
+    // Изменение и удаление отменяют прежнюю сумму транзакции, поэтому ее строка читается только после блокировки
+    // счетов и сама под блокировкой: обычное чтение в REPEATABLE READ вернуло бы снимок до ожидания, и два
+    // параллельных изменения отменили бы одну и ту же сумму дважды. Если транзакцию успели перенести на другой
+    // счет, блокируется и он; пока строка транзакции заблокирована, счет у нее больше не сменится
+    private Transaction lockTransaction(Long id, Long userId, Long targetAccountId) {
+        Long accountId = transactionRepository.findAccountIdById(id)
+            .orElseThrow(() -> new RuntimeException("Транзакция с ID " + id + " не найдена"));
+        List<Long> accountIds = new ArrayList<>(Arrays.asList(accountId, targetAccountId));
+        balanceService.lockAccounts(userId, accountIds);
         
-        // Пересчитываем баланс счетов
-        accountService.recalculateBalances(user.getId());
+        Transaction transaction = transactionRepository.findByIdForUpdate(id)
+            .orElseThrow(() -> new RuntimeException("Транзакция с ID " + id + " не найдена"));
+        if (!accountIds.contains(transaction.getAccountId())) {
+            accountIds.add(transaction.getAccountId());
+            balanceService.lockAccounts(userId, accountIds);
+        }
+        return transaction;
     }
     
     public List<TransactionDTO> getUserTransactions() {
         // Получаем текущего пользователя
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
                 
-        return transactionRepository.findByUserIdOrderByDateDesc(user.getId()).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return transactionRepository.findDTOsByUserId(user.getId());
     }
 
+    // Страница истории по (date desc, id desc); cursor - значение nextCursor предыдущей страницы
+    public TransactionPageDTO getUserTransactionsPage(int limit, String cursor) {
+        return getUserTransactionsPage(limit, cursor, null, null);
+    }
+    
+    // Страница истории; если заданы start и end, только транзакции периода [start, end]
+    public TransactionPageDTO getUserTransactionsPage(int limit, String cursor, LocalDateTime start, LocalDateTime end) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        
+        User user = currentUser.getReference();
+        
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        Limit fetch = Limit.of(limit + 1);
+        Transaction position = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+        List<TransactionDTO> transactions;
+        if (start != null && end != null) {
+            if (position == null) {
+                transactions = transactionRepository.findFirstPageBetween(user.getId(), start, end, fetch);
+            } else if (position.getDate() == null) {
+                throw new IllegalArgumentException("Некорректный cursor");
+            } else {
+                transactions = transactionRepository.findPageBetweenAfter(
+                        user.getId(), start, end, position.getDate(), position.getId(), fetch);
+            }
+        } else if (position == null) {
+            transactions = transactionRepository.findFirstPage(user.getId(), fetch);
+        } else {
+            transactions = position.getDate() != null
+                    ? transactionRepository.findPageAfter(user.getId(), position.getDate(), position.getId(), fetch)
+                    : transactionRepository.findUndatedPageAfter(user.getId(), position.getId(), fetch);
+        }
+        
+        boolean hasMore = transactions.size() > limit;
+        if (hasMore) {
+            transactions = transactions.subList(0, limit);
+        }
+        
+        String nextCursor = hasMore ? encodeCursor(transactions.get(transactions.size() - 1)) : null;
+        return new TransactionPageDTO(transactions, nextCursor, hasMore);
+    }
+
+    // Транзакции пользователя по id (для ответа синхронизации)
+    public List<TransactionDTO> getUserTransactionsByIds(Long userId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return transactionRepository.findDTOsByUserIdAndIdIn(userId, ids);
+    }
+    
     public List<TransactionDTO> getTransactionsByDateRange(LocalDateTime start, LocalDateTime end) {
         // Получаем текущего пользователя
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        User user = currentUser.getReference();
                 
-        return transactionRepository.findByUserIdAndDateBetweenOrderByDateDesc(user.getId(), start, end).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return transactionRepository.findDTOsByUserIdAndDateBetween(user.getId(), start, end);
     }
     
     // Вспомогательные методы для преобразования Entity <-> DTO
@@ -241,6 +498,10 @@ public class TransactionService {
         return dto;
     }
     
+    private Long categoryIdOf(Transaction transaction) {
+        return transaction.getCategory() != null ? transaction.getCategory().getId() : null;
+    }
+    
     private void updateTransactionFields(Transaction transaction, TransactionDTO dto, User user) {
         transaction.setAmount(dto.getAmount());
         
@@ -255,7 +516,7 @@ public class TransactionService {
         
         // Обновляем счет с проверкой принадлежности пользователю
         Account account = accountRepository.findByIdAndUser(dto.getAccountId(), user)
-                .orElseThrow(() -> new RuntimeException("Счет не найден или не принадлежит пользователю"));
+                .orElseThrow(() -> new AccessDeniedException("Счет не найден или не принадлежит пользователю"));
         transaction.setAccount(account);
         
         // Обновляем категорию, если указана
@@ -274,6 +535,26 @@ public class TransactionService {
         // Пользователь не меняется
     }
     
+    // Курсор - позиция (date, id) последней записи страницы в base64url
+    static String encodeCursor(TransactionDTO last) {
+        String position = (last.getDate() != null ? last.getDate().toString() : "") + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static Transaction decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('|');
+            String date = position.substring(0, separator);
+            Transaction transaction = new Transaction();
+            transaction.setId(Long.parseLong(position.substring(separator + 1)));
+            transaction.setDate(date.isEmpty() ? null : LocalDateTime.parse(date));
+            return transaction;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный cursor");
+        }
+    }
+    
     private String normalizeString(String input) {
         if (input == null) {
             return null;
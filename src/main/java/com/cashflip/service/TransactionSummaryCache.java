@@ -0,0 +1,55 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.TransactionSummaryDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Кэш итогов по закрытым периодам. Сбрасывается целиком для пользователя при любом изменении его данных.
+// Сброс повторяется после завершения транзакции: читатель мог успеть положить в кэш итоги без незакоммиченных строк
+@Component
+public class TransactionSummaryCache {
+
+    // Не больше стольких разных запросов итогов на пользователя
+    private static final int MAX_ENTRIES_PER_USER = 64;
+
+    private final Cache<Long, Map<String, List<TransactionSummaryDTO>>> cache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public List<TransactionSummaryDTO> get(Long userId, String key) {
+        Map<String, List<TransactionSummaryDTO>> entries = cache.getIfPresent(userId);
+        return entries != null ? entries.get(key) : null;
+    }
+
+    public void put(Long userId, String key, List<TransactionSummaryDTO> summary) {
+        Map<String, List<TransactionSummaryDTO>> entries = cache.get(userId, id -> new ConcurrentHashMap<>());
+        if (entries.size() >= MAX_ENTRIES_PER_USER) {
+            entries.clear();
+        }
+        entries.put(key, List.copyOf(summary));
+    }
+
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.TransactionSummaryDTO;
+import com.cashflip.entity.User;
+import com.cashflip.repository.MonthlyRollupRepository;
+import com.cashflip.repository.TransactionRepository;
+import com.cashflip.security.CurrentUser;
+
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+// Итоги по категориям, счетам, дням и месяцам за период, посчитанные в БД
+@Service
+public class TransactionSummaryService {
+
+    // Границы "всей истории", если период не задан
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final TransactionRepository transactionRepository;
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    private final CurrentUser currentUser;
+    private final TransactionSummaryCache summaryCache;
+    private final MonthlyRollupService monthlyRollupService;
+
+    public TransactionSummaryService(TransactionRepository transactionRepository,
+                                     MonthlyRollupRepository monthlyRollupRepository,
+                                     CurrentUser currentUser,
+                                     TransactionSummaryCache summaryCache,
+                                     MonthlyRollupService monthlyRollupService) {
+        this.transactionRepository = transactionRepository;
+        this.monthlyRollupRepository = monthlyRollupRepository;
+        this.currentUser = currentUser;
+        this.summaryCache = summaryCache;
+        this.monthlyRollupService = monthlyRollupService;
+    }
+
+    public List<TransactionSummaryDTO> getSummary(LocalDateTime start, LocalDateTime end, String groupBy) {
+        User user = currentUser.getReference();
+
+        String grouping = groupBy != null ? groupBy.toLowerCase() : "category";
+        LocalDateTime from = start != null ? start : MIN_DATE;
+        LocalDateTime to = end != null ? end : MAX_DATE;
+
+        // Кэшируются только закрытые периоды: в текущий день еще добавляются транзакции
+        boolean closedPeriod = to.isBefore(LocalDate.now().atStartOfDay());
+        String cacheKey = grouping + "|" + from + "|" + to;
+        if (closedPeriod) {
+            List<TransactionSummaryDTO> cached = summaryCache.get(user.getId(), cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Период из целых месяцев считается по месячным итогам, а не по таблице транзакций,
+        // если итоги всех счетов пользователя уже построены (MonthlyRollupRebuildJob)
+        boolean monthAligned = isMonthStart(from) && isMonthEnd(to) && monthlyRollupService.isIndexed(user.getId());
+        LocalDate fromMonth = from.toLocalDate().withDayOfMonth(1);
+        LocalDate toMonth = to.toLocalDate().withDayOfMonth(1);
+
+        List<TransactionSummaryDTO> summary;
+        switch (grouping) {
+            case "category":
+                summary = monthAligned
+                        ? monthlyRollupRepository.summarizeByCategory(user.getId(), fromMonth, toMonth)
+                        : transactionRepository.summarizeByCategory(user.getId(), from, to);
+                break;
+            case "account":
+                summary = monthAligned
+                        ? monthlyRollupRepository.summarizeByAccount(user.getId(), fromMonth, toMonth)
+                        : transactionRepository.summarizeByAccount(user.getId(), from, to);
+                break;
+            case "day":
+                summary = transactionRepository.summarizeByDay(user.getId(), from, to);
+                break;
+            case "month":
+                summary = monthAligned
+                        ? monthlyRollupRepository.summarizeByMonth(user.getId(), fromMonth, toMonth)
+                        : transactionRepository.summarizeByMonth(user.getId(), from, to);
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная группировка: " + groupBy);
+        }
+
+        if (closedPeriod) {
+            summaryCache.put(user.getId(), cacheKey, summary);
+        }
+        return summary;
+    }
+
+    private boolean isMonthStart(LocalDateTime date) {
+        return date.equals(MIN_DATE) || (date.getDayOfMonth() == 1 && date.toLocalTime().equals(LocalTime.MIDNIGHT));
+    }
+
+    // Конец месяца: последний день не раньше 23:59:59 (контроллер расширяет дату до конца дня)
+    private boolean isMonthEnd(LocalDateTime date) {
+        LocalDate day = date.toLocalDate();
+        return date.equals(MAX_DATE)
+                || (day.getDayOfMonth() == day.lengthOfMonth() && !date.toLocalTime().isBefore(LocalTime.of(23, 59, 59)));
+    }
+}
@@ -1,9 +1,9 @@
 package com.cashflip.service;
 
 import com.cashflip.dto.UserDTO;
-import org.springframework.security.core.context.SecurityContextHolder;
 import com.cashflip.entity.User;
 import com.cashflip.repository.UserRepository;
+import com.cashflip.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,11 +12,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CurrentUser currentUser;
+
     // Получить текущего пользователя
     public UserDTO getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.load();
         // Преобразование User -> UserDTO (добавьте поля по необходимости)
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
@@ -27,9 +28,7 @@ public class UserService {
 
     // Обновить текущего пользователя
     public UserDTO updateCurrentUser(UserDTO userDTO) {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.load();
         user.setName(userDTO.getName());
         // Можно добавить обновление других полей, если нужно
         userRepository.save(user);
@@ -0,0 +1,26 @@
+package com.cashflip.util;
+
+import java.util.Date;
+
+// Неизменяемый результат одной проверки токена: все нужные поля читаются без повторного разбора
+public record JwtClaims(String subject, Long userId, Date issuedAt, Date expiration) {
+
+    public JwtClaims {
+        issuedAt = issuedAt != null ? new Date(issuedAt.getTime()) : null;
+        expiration = expiration != null ? new Date(expiration.getTime()) : null;
+    }
+
+    @Override
+    public Date issuedAt() {
+        return issuedAt != null ? new Date(issuedAt.getTime()) : null;
+    }
+
+    @Override
+    public Date expiration() {
+        return expiration != null ? new Date(expiration.getTime()) : null;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -1,7 +1,10 @@
 package com.cashflip.util;
 
 import com.cashflip.entity.User;
+import com.cashflip.security.AuthenticatedUser;
+import jakarta.annotation.PostConstruct;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -25,9 +28,30 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Имя claim с идентификатором пользователя
+    public static final String USER_ID_CLAIM = "uid";
+
+    // Ключ и парсер потокобезопасны и строятся один раз при старте
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    // Проверяет подпись и срок действия один раз и возвращает все нужные поля
+    public JwtClaims parse(String token) {
+        Claims claims = extractAllClaims(token);
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return new JwtClaims(
+                claims.getSubject(),
+                userId != null ? userId.longValue() : null,
+                claims.getIssuedAt(),
+                claims.getExpiration());
     }
 
     public String extractUsername(String token) {
@@ -44,24 +68,20 @@ public class JwtUtils {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser authenticatedUser) {
+            claims.put(USER_ID_CLAIM, authenticatedUser.getId());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
         return createToken(claims, user.getEmail());
     }
 
@@ -71,18 +91,26 @@ public class JwtUtils {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parse(token), userDetails);
+    }
+
+    public Boolean validateToken(JwtClaims claims, UserDetails userDetails) {
+        // Токен, выданный другому пользователю с тем же email (например, после пересоздания), не принимается
+        if (claims.userId() != null && userDetails instanceof AuthenticatedUser authenticatedUser
+                && !claims.userId().equals(authenticatedUser.getId())) {
+            return false;
+        }
+        return claims.subject() != null && claims.subject().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 
     public Boolean canRefresh(String token) {
         try {
-            return !isTokenExpired(token);
+            return !parse(token).isExpired();
         } catch (Exception e) {
             return false;
         }
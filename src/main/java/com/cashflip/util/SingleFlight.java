@@ -0,0 +1,117 @@
+package com.cashflip.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Объединение одновременных запусков одной задачи по ключу. Если запуска нет - вызывающий выполняет задачу сам.
+// Пришедшие во время запуска ждут одного повторного запуска после него (он увидит их изменения) и разделяют
+// его результат; повторный запуск выполняет первый из них. Так на любой всплеск приходится не больше двух запусков.
+public final class SingleFlight<K> {
+
+    private static final class Flight {
+        CompletableFuture<Void> running;
+        CompletableFuture<Void> next;
+
+        Flight(CompletableFuture<Void> running) {
+            this.running = running;
+        }
+    }
+
+    private enum Role {
+        RUN,
+        FOLLOW_UP,
+        JOIN
+    }
+
+    private final Map<K, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public void run(K key, Runnable task) {
+        Role[] role = new Role[1];
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void>[] futures = new CompletableFuture[2];
+
+        flights.compute(key, (k, flight) -> {
+            if (flight == null) {
+                role[0] = Role.RUN;
+                futures[0] = new CompletableFuture<>();
+                return new Flight(futures[0]);
+            }
+            if (flight.next == null) {
+                role[0] = Role.FOLLOW_UP;
+                flight.next = new CompletableFuture<>();
+            } else {
+                role[0] = Role.JOIN;
+            }
+            futures[0] = flight.running;
+            futures[1] = flight.next;
+            return flight;
+        });
+
+        switch (role[0]) {
+            case RUN -> execute(key, task, futures[0]);
+            case FOLLOW_UP -> {
+                // Результат текущего запуска не важен: повторный все равно выполняется
+                futures[0].handle((result, error) -> null).join();
+                flights.computeIfPresent(key, (k, flight) -> {
+                    flight.running = flight.next;
+                    flight.next = null;
+                    return flight;
+                });
+                execute(key, task, futures[1]);
+            }
+            case JOIN -> {
+                coalesced.incrementAndGet();
+                await(futures[1]);
+            }
+        }
+    }
+
+    // Сколько раз задача действительно выполнялась и сколько вызовов обошлись без своего запуска
+    public long executions() {
+        return executions.get();
+    }
+
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    private void execute(K key, Runnable task, CompletableFuture<Void> future) {
+        executions.incrementAndGet();
+        Throwable failure = null;
+        try {
+            task.run();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        // Место освобождается до того, как ожидающие узнают результат; запланированный повторный запуск займет его сам
+        flights.computeIfPresent(key, (k, flight) -> flight.running == future && flight.next == null ? null : flight);
+        if (failure == null) {
+            future.complete(null);
+            return;
+        }
+        future.completeExceptionally(failure);
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        throw (Error) failure;
+    }
+
+    private void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cashflip.backend;
+
+import com.cashflip.config.VirtualThreadPinningMonitor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Профиль virtual: контекст поднимается, монитор закреплений зарегистрирован, фоновый импорт на виртуальных потоках
+@SpringBootTest
+@ActiveProfiles("virtual")
+@Import(TestcontainersConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class VirtualProfileTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	@Qualifier("importExecutor")
+	private ThreadPoolTaskExecutor importExecutor;
+
+	@Test
+	void contextLoadsWithPinningMonitor() {
+		assertThat(context.getBeansOfType(VirtualThreadPinningMonitor.class)).hasSize(1);
+	}
+
+	@Test
+	void importRunsOnVirtualThreads() throws Exception {
+		assertThat(importExecutor.submit(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.cashflip.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Монитор регистрируется только в режиме виртуальных потоков (Threading.VIRTUAL) и если не выключен явно
+class VirtualThreadPinningMonitorTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withUserConfiguration(VirtualThreadPinningMonitor.class);
+
+    @Test
+    void registeredWithVirtualThreads() {
+        runner.withPropertyValues("spring.threads.virtual.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(VirtualThreadPinningMonitor.class));
+    }
+
+    @Test
+    void absentWithPlatformThreads() {
+        runner.run(context -> assertThat(context).doesNotHaveBean(VirtualThreadPinningMonitor.class));
+        runner.withPropertyValues("spring.threads.virtual.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean(VirtualThreadPinningMonitor.class));
+    }
+
+    @Test
+    void absentWhenDisabled() {
+        runner.withPropertyValues("spring.threads.virtual.enabled=true",
+                        "diagnostics.virtual-threads.pinning.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean(VirtualThreadPinningMonitor.class));
+    }
+}
@@ -0,0 +1,30 @@
+package com.cashflip.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Записи и ошибки разбора выписки для проверок в тестах; ошибка - "строка: сообщение"
+class CollectingListener implements StatementParser.Listener {
+
+    final List<StatementRecord> records = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+
+    static CollectingListener parse(StatementParser parser, String content) throws IOException {
+        CollectingListener listener = new CollectingListener();
+        parser.parse(new BufferedReader(new StringReader(content)), listener);
+        return listener;
+    }
+
+    @Override
+    public void onRecord(StatementRecord record) {
+        records.add(record);
+    }
+
+    @Override
+    public void onError(long line, String message) {
+        errors.add(line + ": " + message);
+    }
+}
@@ -0,0 +1,97 @@
+package com.cashflip.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvStatementParserTest {
+
+    @Test
+    void readsSemicolonSeparatedRussianHeader() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "Дата операции;Сумма;Описание;Категория\n" +
+                "14.03.2025;-1 234,56;Кафе;Еда\n" +
+                "15.03.2025;50 000,00;Зарплата;\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).containsExactly(
+                new StatementRecord(LocalDateTime.of(2025, 3, 14, 0, 0), result.records.get(0).amount(), "Кафе", "Еда"),
+                new StatementRecord(LocalDateTime.of(2025, 3, 15, 0, 0), result.records.get(1).amount(), "Зарплата", null));
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-1234.56");
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("50000.00");
+    }
+
+    @Test
+    void readsQuotedCommaSeparatedFields() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "date,amount,description\n" +
+                "2025-03-14,\"1,234.56\",\"Shop \"\"A\"\", Inc\"\n" +
+                "2025-03-15,-5,\"first line\n" +
+                "second line\"\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(2);
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("1234.56");
+        assertThat(result.records.get(0).description()).isEqualTo("Shop \"A\", Inc");
+        assertThat(result.records.get(0).category()).isNull();
+        assertThat(result.records.get(1).description()).isEqualTo("first line\nsecond line");
+    }
+
+    @Test
+    void combinesDebitAndCreditColumns() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "Дата;Приход;Расход;Описание\n" +
+                "01.02.2025;;500,00;Аренда\n" +
+                "02.02.2025;1000;;Зарплата\n" +
+                "03.02.2025;;;Пусто\n");
+
+        assertThat(result.records).hasSize(2);
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-500.00");
+        assertThat(result.records.get(0).description()).isEqualTo("Аренда");
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("1000");
+        assertThat(result.errors).containsExactly("4: Пустая сумма");
+    }
+
+    @Test
+    void readsColumnsByPositionWithoutHeader() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "2025-03-14\t-10\tCoffee\n" +
+                "\n" +
+                "2025-03-15 08:30\t2.5\tTea\tDrinks\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).containsExactly(
+                new StatementRecord(LocalDateTime.of(2025, 3, 14, 0, 0), result.records.get(0).amount(), "Coffee", null),
+                new StatementRecord(LocalDateTime.of(2025, 3, 15, 8, 30), result.records.get(1).amount(), "Tea", "Drinks"));
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-10");
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("2.5");
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "\uFEFFdate;amount\n2025-01-01;5\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(1);
+        assertThat(result.records.get(0).date()).isEqualTo(LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+
+    @Test
+    void reportsMalformedRowsAndContinues() throws IOException {
+        CollectingListener result = CollectingListener.parse(new CsvStatementParser(),
+                "date;amount;description\n" +
+                "2025-03-14;abc;Bad amount\n" +
+                "not-a-date;5;Bad date\n" +
+                "2025-03-15;7;Good\n");
+
+        assertThat(result.errors).containsExactly(
+                "2: Некорректная сумма: abc",
+                "3: Некорректная дата: not-a-date");
+        assertThat(result.records).hasSize(1);
+        assertThat(result.records.get(0).description()).isEqualTo("Good");
+    }
+}
@@ -0,0 +1,82 @@
+package com.cashflip.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfxStatementParserTest {
+
+    @Test
+    void readsSgmlTransactions() throws IOException {
+        CollectingListener result = CollectingListener.parse(new OfxStatementParser(),
+                "OFXHEADER:100\n" +
+                "DATA:OFXSGML\n" +
+                "<OFX>\n" +
+                "<BANKTRANLIST>\n" +
+                "<STMTTRN>\n" +
+                "<TRNTYPE>DEBIT\n" +
+                "<DTPOSTED>20250314120000.000[-5:EST]\n" +
+                "<TRNAMT>-12.50\n" +
+                "<NAME>Coffee &amp; Co\n" +
+                "<MEMO>Card 1234\n" +
+                "</STMTTRN>\n" +
+                "<STMTTRN>\n" +
+                "<DTPOSTED>20250315\n" +
+                "<TRNAMT>1000.00\n" +
+                "<NAME>Salary\n" +
+                "<MEMO>salary\n" +
+                "</STMTTRN>\n" +
+                "</BANKTRANLIST>\n" +
+                "</OFX>\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(2);
+        assertThat(result.records.get(0).date()).isEqualTo(LocalDateTime.of(2025, 3, 14, 12, 0));
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-12.50");
+        assertThat(result.records.get(0).description()).isEqualTo("Coffee & Co (Card 1234)");
+        assertThat(result.records.get(0).category()).isNull();
+        assertThat(result.records.get(1).date()).isEqualTo(LocalDateTime.of(2025, 3, 15, 0, 0));
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("1000.00");
+        assertThat(result.records.get(1).description()).isEqualTo("Salary");
+    }
+
+    @Test
+    void readsXmlTransactions() throws IOException {
+        CollectingListener result = CollectingListener.parse(new OfxStatementParser(),
+                "<?xml version=\"1.0\"?><OFX><STMTTRN><DTPOSTED>20250101</DTPOSTED>" +
+                "<TRNAMT>-5</TRNAMT><MEMO>Fee</MEMO></STMTTRN></OFX>");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(1);
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-5");
+        assertThat(result.records.get(0).description()).isEqualTo("Fee");
+    }
+
+    @Test
+    void reportsMalformedTransactionsAndContinues() throws IOException {
+        CollectingListener result = CollectingListener.parse(new OfxStatementParser(),
+                "<OFX>\n" +
+                "<STMTTRN>\n" +
+                "<DTPOSTED>2025\n" +
+                "<TRNAMT>1\n" +
+                "</STMTTRN>\n" +
+                "<STMTTRN>\n" +
+                "<DTPOSTED>20250101\n" +
+                "<TRNAMT>x\n" +
+                "</STMTTRN>\n" +
+                "<STMTTRN>\n" +
+                "<DTPOSTED>20250102\n" +
+                "<TRNAMT>3,50\n" +
+                "</STMTTRN>\n" +
+                "</OFX>\n");
+
+        assertThat(result.errors).containsExactly(
+                "2: Некорректная дата: 2025",
+                "6: Некорректная сумма: x");
+        assertThat(result.records).hasSize(1);
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("3.50");
+    }
+}
@@ -0,0 +1,81 @@
+package com.cashflip.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QifStatementParserTest {
+
+    @Test
+    void readsRecords() throws IOException {
+        CollectingListener result = CollectingListener.parse(new QifStatementParser(),
+                "!Type:Bank\n" +
+                "D3/14/2025\n" +
+                "T-1,234.56\n" +
+                "PCoffee shop\n" +
+                "MMorning\n" +
+                "LFood:Cafe\n" +
+                "^\n" +
+                "D1/5'24\n" +
+                "U100.00\n" +
+                "T100.00\n" +
+                "MSalary\n" +
+                "L[Savings]\n" +
+                "^\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(2);
+        assertThat(result.records.get(0).date()).isEqualTo(LocalDateTime.of(2025, 3, 14, 0, 0));
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("-1234.56");
+        assertThat(result.records.get(0).description()).isEqualTo("Coffee shop");
+        assertThat(result.records.get(0).category()).isEqualTo("Food");
+        assertThat(result.records.get(1).date()).isEqualTo(LocalDateTime.of(2024, 1, 5, 0, 0));
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("100.00");
+        assertThat(result.records.get(1).description()).isEqualTo("Salary");
+        assertThat(result.records.get(1).category()).isNull();
+    }
+
+    @Test
+    void readsPaddedDatesAndLastRecordWithoutTerminator() throws IOException {
+        CollectingListener result = CollectingListener.parse(new QifStatementParser(),
+                "D 1/ 5/24\n" +
+                "T-7\n" +
+                "^\n" +
+                "D2025-02-01\n" +
+                "T1,234,567\n");
+
+        assertThat(result.errors).isEmpty();
+        assertThat(result.records).hasSize(2);
+        assertThat(result.records.get(0).date()).isEqualTo(LocalDateTime.of(2024, 1, 5, 0, 0));
+        assertThat(result.records.get(1).date()).isEqualTo(LocalDateTime.of(2025, 2, 1, 0, 0));
+        assertThat(result.records.get(1).amount()).isEqualByComparingTo("1234567");
+    }
+
+    @Test
+    void reportsMalformedRecordsAndContinues() throws IOException {
+        CollectingListener result = CollectingListener.parse(new QifStatementParser(),
+                "!Type:Bank\n" +
+                "D13/45/2025\n" +
+                "T5\n" +
+                "^\n" +
+                "D3/14/2025\n" +
+                "Tabc\n" +
+                "^\n" +
+                "D3/15/2025\n" +
+                "PNo amount\n" +
+                "^\n" +
+                "D3/16/2025\n" +
+                "T8\n" +
+                "^\n");
+
+        assertThat(result.errors).containsExactly(
+                "2: Некорректная дата: 13/45/2025",
+                "5: Некорректная сумма: abc",
+                "8: Пустая сумма");
+        assertThat(result.records).hasSize(1);
+        assertThat(result.records.get(0).amount()).isEqualByComparingTo("8");
+    }
+}
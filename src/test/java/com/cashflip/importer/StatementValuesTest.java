@@ -0,0 +1,93 @@
+package com.cashflip.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementValuesTest {
+
+    @Test
+    void parsesDecimalSeparators() {
+        assertThat(StatementValues.parseAmount("-1234.56")).isEqualByComparingTo("-1234.56");
+        assertThat(StatementValues.parseAmount("12,5")).isEqualByComparingTo("12.5");
+        assertThat(StatementValues.parseAmount("+10")).isEqualByComparingTo("10");
+        assertThat(StatementValues.parseAmount("  -0,01 ")).isEqualByComparingTo("-0.01");
+    }
+
+    @Test
+    void parsesThousandsSeparators() {
+        assertThat(StatementValues.parseAmount("1 234,56")).isEqualByComparingTo("1234.56");
+        assertThat(StatementValues.parseAmount("1 234 567,89")).isEqualByComparingTo("1234567.89");
+        assertThat(StatementValues.parseAmount("1'234.50")).isEqualByComparingTo("1234.50");
+        assertThat(StatementValues.parseAmount("1,234.56")).isEqualByComparingTo("1234.56");
+        assertThat(StatementValues.parseAmount("1.234,56")).isEqualByComparingTo("1234.56");
+        assertThat(StatementValues.parseAmount("-1,234,567.89")).isEqualByComparingTo("-1234567.89");
+        assertThat(StatementValues.parseAmount("1,234,567")).isEqualByComparingTo("1234567");
+        assertThat(StatementValues.parseAmount("1.234.567")).isEqualByComparingTo("1234567");
+    }
+
+    @Test
+    void rejectsMalformedAmounts() {
+        assertThatThrownBy(() -> StatementValues.parseAmount(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Пустая сумма");
+        assertThatThrownBy(() -> StatementValues.parseAmount("  "))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Пустая сумма");
+        assertThatThrownBy(() -> StatementValues.parseAmount("abc"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Некорректная сумма: abc");
+        assertThatThrownBy(() -> StatementValues.parseAmount("1,2,3.4.5"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StatementValues.parseAmount("12-"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parsesDateFormats() {
+        LocalDateTime day = LocalDateTime.of(2025, 3, 14, 0, 0);
+
+        assertThat(StatementValues.parseDate("2025-03-14")).isEqualTo(day);
+        assertThat(StatementValues.parseDate("14.03.2025")).isEqualTo(day);
+        assertThat(StatementValues.parseDate("4.3.2025")).isEqualTo(LocalDateTime.of(2025, 3, 4, 0, 0));
+        assertThat(StatementValues.parseDate("14/03/2025")).isEqualTo(day);
+        assertThat(StatementValues.parseDate("20250314")).isEqualTo(day);
+        assertThat(StatementValues.parseDate(" 2025-03-14 ")).isEqualTo(day);
+    }
+
+    @Test
+    void parsesDateTimeFormats() {
+        assertThat(StatementValues.parseDate("2025-03-14T10:15:30"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 14, 10, 15, 30));
+        assertThat(StatementValues.parseDate("2025-03-14 10:15:30"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 14, 10, 15, 30));
+        assertThat(StatementValues.parseDate("2025-03-14 10:15"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 14, 10, 15));
+        assertThat(StatementValues.parseDate("14.03.2025 10:15:30"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 14, 10, 15, 30));
+        assertThat(StatementValues.parseDate("14.03.2025 10:15"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 14, 10, 15));
+    }
+
+    @Test
+    void rejectsMalformedDates() {
+        assertThatThrownBy(() -> StatementValues.parseDate(""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Пустая дата");
+        assertThatThrownBy(() -> StatementValues.parseDate("2025-13-01"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Некорректная дата: 2025-13-01");
+        assertThatThrownBy(() -> StatementValues.parseDate("14-03-2025"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void trimsBlankToNull() {
+        assertThat(StatementValues.emptyToNull(null)).isNull();
+        assertThat(StatementValues.emptyToNull("   ")).isNull();
+        assertThat(StatementValues.emptyToNull(" Кафе ")).isEqualTo("Кафе");
+    }
+}
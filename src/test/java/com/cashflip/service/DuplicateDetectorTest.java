@@ -0,0 +1,198 @@
+package com.cashflip.service;
+
+import com.cashflip.repository.TransactionJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateDetectorTest {
+
+    private static final Long USER = 7L;
+    private static final Long ACCOUNT = 42L;
+    private static final LocalDateTime DATE = LocalDateTime.of(2025, 3, 14, 9, 30, 15);
+
+    @Test
+    void fingerprintIgnoresCasePunctuationAndSpacing() {
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE, new BigDecimal("10.00"), "  Coffee,  SHOP!! "))
+                .isEqualTo(DuplicateDetector.fingerprint(ACCOUNT, DATE, new BigDecimal("10"), "coffee shop"));
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, "Кафе «Ромашка»"))
+                .isEqualTo(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, "кафе ромашка"));
+    }
+
+    @Test
+    void fingerprintTruncatesDateToSeconds() {
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE.withNano(999_000_000), BigDecimal.ONE, "a"))
+                .isEqualTo(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, "a"));
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE.plusSeconds(1), BigDecimal.ONE, "a"))
+                .isNotEqualTo(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, "a"));
+    }
+
+    @Test
+    void fingerprintDependsOnAccountAmountAndDescription() {
+        String base = DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.TEN, "rent");
+
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT + 1, DATE, BigDecimal.TEN, "rent")).isNotEqualTo(base);
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.TEN.negate(), "rent")).isNotEqualTo(base);
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.TEN, "rent 2")).isNotEqualTo(base);
+        assertThat(base).hasSize(64).matches("[0-9a-f]+");
+    }
+
+    @Test
+    void fingerprintTreatsMissingDescriptionAsEmpty() {
+        String empty = DuplicateDetector.fingerprint(ACCOUNT, null, BigDecimal.ONE, "");
+
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, null, BigDecimal.ONE, null)).isEqualTo(empty);
+        assertThat(DuplicateDetector.fingerprint(ACCOUNT, null, BigDecimal.ONE, " -- ")).isEqualTo(empty);
+    }
+
+    @Test
+    void unseenFingerprintSkipsDatabase() {
+        FakeRepository repository = new FakeRepository();
+        String stored = fingerprint("stored");
+        repository.stored.add(stored);
+        DuplicateDetector detector = detector(repository);
+
+        assertThat(detector.findDuplicates(USER, ACCOUNT, List.of(fingerprint("new")))).isEmpty();
+        assertThat(repository.lookups).isEmpty();
+
+        assertThat(detector.findDuplicate(USER, ACCOUNT, stored)).isEqualTo(1L);
+        assertThat(repository.lookups).containsExactly(List.of(stored));
+        assertThat(repository.scans).hasValue(1);
+    }
+
+    @Test
+    void backfillsMissingFingerprintsOnLoad() {
+        FakeRepository repository = new FakeRepository();
+        repository.stored.add(null);
+        DuplicateDetector detector = detector(repository);
+
+        detector.findDuplicates(USER, ACCOUNT, List.of(fingerprint("new")));
+
+        assertThat(repository.backfilled).containsEntry(1L,
+                DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, "row"));
+    }
+
+    @Test
+    void recordedFingerprintReachesDatabaseLookup() {
+        FakeRepository repository = new FakeRepository();
+        DuplicateDetector detector = detector(repository);
+        detector.findDuplicates(USER, ACCOUNT, List.of(fingerprint("warm-up")));
+
+        String recorded = fingerprint("recorded");
+        detector.record(ACCOUNT, recorded);
+        detector.findDuplicate(USER, ACCOUNT, recorded);
+
+        assertThat(repository.lookups).containsExactly(List.of(recorded));
+    }
+
+    @Test
+    void recordWithoutCachedFilterDoesNotLoadIt() {
+        FakeRepository repository = new FakeRepository();
+        DuplicateDetector detector = detector(repository);
+
+        detector.record(ACCOUNT, fingerprint("recorded"));
+
+        assertThat(repository.scans).hasValue(0);
+    }
+
+    // Запись, пришедшая, пока фильтр строится из БД, не должна потеряться: строка могла не попасть в чтение
+    @Test
+    void recordDuringLoadIsNotLost() throws Exception {
+        FakeRepository repository = new FakeRepository();
+        repository.scanning = new CountDownLatch(1);
+        repository.release = new CountDownLatch(1);
+        DuplicateDetector detector = detector(repository);
+        String recorded = fingerprint("recorded during load");
+
+        Thread loader = new Thread(() -> detector.findDuplicates(USER, ACCOUNT, List.of(fingerprint("warm-up"))));
+        loader.start();
+        assertThat(repository.scanning.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread writer = new Thread(() -> detector.record(ACCOUNT, recorded));
+        writer.start();
+        // Запись ждет окончания построения фильтра этого счета
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getState() != Thread.State.BLOCKED && writer.getState() != Thread.State.TERMINATED
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        repository.release.countDown();
+        loader.join(5000);
+        writer.join(5000);
+
+        detector.findDuplicate(USER, ACCOUNT, recorded);
+
+        assertThat(repository.scans).hasValue(1);
+        assertThat(repository.lookups).containsExactly(List.of(recorded));
+    }
+
+    private DuplicateDetector detector(FakeRepository repository) {
+        return new DuplicateDetector(repository, new SimpleMeterRegistry(), 100, 60);
+    }
+
+    private String fingerprint(String description) {
+        return DuplicateDetector.fingerprint(ACCOUNT, DATE, BigDecimal.ONE, description);
+    }
+
+    // Строки счета в памяти: id по порядку, null - отпечаток еще не записан
+    private static class FakeRepository extends TransactionJdbcRepository {
+
+        final List<String> stored = new CopyOnWriteArrayList<>();
+        final List<List<String>> lookups = new CopyOnWriteArrayList<>();
+        final Map<Long, String> backfilled = new ConcurrentHashMap<>();
+        final AtomicInteger scans = new AtomicInteger();
+        volatile CountDownLatch scanning;
+        volatile CountDownLatch release;
+
+        FakeRepository() {
+            super(null);
+        }
+
+        @Override
+        public void forEachFingerprintSource(Long accountId, FingerprintSourceHandler handler) {
+            scans.incrementAndGet();
+            if (scanning != null) {
+                scanning.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            long id = 1;
+            for (String fingerprint : stored) {
+                handler.handle(id++, BigDecimal.ONE, "row", DATE, fingerprint);
+            }
+        }
+
+        @Override
+        public Map<String, Long> findIdsByFingerprints(Long userId, Long accountId, Collection<String> fingerprints) {
+            lookups.add(List.copyOf(fingerprints));
+            Map<String, Long> ids = new java.util.HashMap<>();
+            for (String fingerprint : fingerprints) {
+                int index = stored.indexOf(fingerprint);
+                if (index >= 0) {
+                    ids.put(fingerprint, index + 1L);
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public void updateFingerprints(Map<Long, String> fingerprints) {
+            backfilled.putAll(fingerprints);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.cashflip.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Запросы к БД, выполненные в потоке теста между start() и stop(). Считаются на уровне JDBC, поэтому
+// видны и запросы Hibernate, и NamedParameterJdbcTemplate; executeBatch - один запрос на пакет.
+// Выдача блока id из id_generators (раз в allocationSize записей) не учитывается.
+class StatementCounter implements BeanPostProcessor {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private volatile Thread recording;
+
+    void start() {
+        statements.clear();
+        recording = Thread.currentThread();
+    }
+
+    List<String> stop() {
+        recording = null;
+        return List.copyOf(statements);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, null);
+        }
+        return bean;
+    }
+
+    // Соединения и запросы оборачиваются по мере выдачи; текст подготовленного запроса запоминается при prepare
+    private <T> T proxy(Class<T> type, T target, String sql) {
+        InvocationHandler handler = (self, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                record(args != null && args.length > 0 && args[0] instanceof String text ? text : sql);
+            } else if (result instanceof Connection connection && name.equals("getConnection")) {
+                return proxy(Connection.class, connection, null);
+            } else if (result instanceof Statement statement && target instanceof Connection) {
+                @SuppressWarnings("unchecked")
+                Class<Statement> statementType = (Class<Statement>) method.getReturnType();
+                return proxy(statementType, statement,
+                        args != null && args.length > 0 && args[0] instanceof String text ? text : null);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private void record(String sql) {
+        if (recording == Thread.currentThread() && (sql == null || !sql.contains("id_generators"))) {
+            statements.add(sql);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.cashflip.service;
+
+import com.cashflip.backend.CashFlipApplication;
+import com.cashflip.backend.TestcontainersConfiguration;
+import com.cashflip.dto.AccountDTO;
+import com.cashflip.dto.TransactionDTO;
+import com.cashflip.entity.User;
+import com.cashflip.repository.UserRepository;
+import com.cashflip.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Параллельные изменения и удаления одной транзакции: прежняя сумма отменяется ровно один раз,
+// и баланс, дневной индекс и месячные итоги сходятся с оставшимися транзакциями
+@SpringBootTest(classes = CashFlipApplication.class)
+@Import(TestcontainersConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 14, 9, 0);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Authentication authentication;
+    private Long accountId;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void signIn() {
+        User user = userRepository.save(User.builder()
+                .name("concurrency")
+                .email("concurrency-" + UUID.randomUUID() + "@example.com")
+                .password("")
+                .build());
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getEmail(), "");
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        AccountDTO account = new AccountDTO();
+        account.setName("concurrency");
+        account.setBalance(BigDecimal.ZERO);
+        account.setCurrency("₽");
+        account.setIsMain(true);
+        accountId = accountService.createAccount(account).getId();
+        executor = Executors.newFixedThreadPool(WRITERS);
+    }
+
+    @AfterEach
+    void signOut() {
+        executor.shutdownNow();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentUpdatesRevertPreviousAmountOnce() throws Exception {
+        Long id = transactionService.createTransaction(transaction(new BigDecimal("-1.00"), DAY)).getId();
+
+        List<Future<?>> writers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < WRITERS; i++) {
+            TransactionDTO update = transaction(BigDecimal.valueOf(-(i + 2)), DAY.plusDays(i));
+            writers.add(executor.submit(() -> asUser(start, () -> transactionService.updateTransaction(id, update))));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+
+        BigDecimal amount = jdbcTemplate.queryForObject(
+                "SELECT amount FROM transactions WHERE id = ?", BigDecimal.class, id);
+        assertLedgerMatches(amount);
+    }
+
+    @Test
+    void concurrentDeletesRevertAmountOnce() throws Exception {
+        Long id = transactionService.createTransaction(transaction(new BigDecimal("-5.00"), DAY)).getId();
+        transactionService.createTransaction(transaction(new BigDecimal("-7.00"), DAY.plusDays(1)));
+
+        List<Future<?>> writers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < WRITERS; i++) {
+            writers.add(executor.submit(() -> asUser(start, () -> transactionService.deleteTransaction(id))));
+        }
+        start.countDown();
+        int deleted = 0;
+        for (Future<?> writer : writers) {
+            try {
+                writer.get(30, TimeUnit.SECONDS);
+                deleted++;
+            } catch (ExecutionException e) {
+                // Остальные видят уже удаленную транзакцию
+                assertThat(e.getCause()).hasMessageContaining("не найдена");
+            }
+        }
+
+        assertThat(deleted).isEqualTo(1);
+        assertLedgerMatches(new BigDecimal("-7.00"));
+    }
+
+    private void assertLedgerMatches(BigDecimal expected) {
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId))
+                .isEqualByComparingTo(expected);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(net_change), 0) FROM account_daily_balances WHERE account_id = ?",
+                BigDecimal.class, accountId))
+                .isEqualByComparingTo(expected);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(total), 0) FROM monthly_rollups WHERE account_id = ?",
+                BigDecimal.class, accountId))
+                .isEqualByComparingTo(expected);
+    }
+
+    // Писатели стартуют одновременно, каждый от имени пользователя теста
+    private Void asUser(CountDownLatch start, Runnable write) throws InterruptedException {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            start.await();
+            write.run();
+            return null;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private TransactionDTO transaction(BigDecimal amount, LocalDateTime date) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setAccountId(accountId);
+        dto.setAmount(amount);
+        dto.setDescription("concurrency " + amount);
+        dto.setDate(date);
+        return dto;
+    }
+}
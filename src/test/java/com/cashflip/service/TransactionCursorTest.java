@@ -0,0 +1,76 @@
+package com.cashflip.service;
+
+import com.cashflip.dto.TransactionDTO;
+import com.cashflip.entity.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Курсор постраничного вывода: позиция (date, id) последней записи страницы
+class TransactionCursorTest {
+
+    @Test
+    void roundTripsDateAndId() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000);
+
+        Transaction position = TransactionService.decodeCursor(TransactionService.encodeCursor(row(42L, date)));
+
+        assertThat(position.getId()).isEqualTo(42L);
+        assertThat(position.getDate()).isEqualTo(date);
+    }
+
+    @Test
+    void roundTripsWholeSecondsAndMidnight() {
+        LocalDateTime midnight = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        Transaction position = TransactionService.decodeCursor(TransactionService.encodeCursor(row(7L, midnight)));
+
+        assertThat(position.getDate()).isEqualTo(midnight);
+    }
+
+    @Test
+    void undatedRowKeepsOnlyId() {
+        Transaction position = TransactionService.decodeCursor(TransactionService.encodeCursor(row(Long.MAX_VALUE, null)));
+
+        assertThat(position.getId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(position.getDate()).isNull();
+    }
+
+    @Test
+    void cursorIsUrlSafeWithoutPadding() {
+        String cursor = TransactionService.encodeCursor(row(123456789L, LocalDateTime.of(2025, 12, 31, 23, 59, 59)));
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertInvalid("not base64!");
+        assertInvalid(encode("no separator"));
+        assertInvalid(encode("2025-01-01T00:00|abc"));
+        assertInvalid(encode("yesterday|5"));
+        assertInvalid(encode("2025-01-01T00:00|"));
+    }
+
+    private static void assertInvalid(String cursor) {
+        assertThatThrownBy(() -> TransactionService.decodeCursor(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Некорректный cursor");
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TransactionDTO row(Long id, LocalDateTime date) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setId(id);
+        dto.setDate(date);
+        return dto;
+    }
+}
@@ -0,0 +1,165 @@
+package com.cashflip.service;
+
+import com.cashflip.backend.CashFlipApplication;
+import com.cashflip.backend.TestcontainersConfiguration;
+import com.cashflip.dto.AccountDTO;
+import com.cashflip.dto.TransactionDTO;
+import com.cashflip.dto.TransactionPageDTO;
+import com.cashflip.entity.User;
+import com.cashflip.repository.UserRepository;
+import com.cashflip.security.AuthenticatedUser;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Число запросов к БД на запись и чтение транзакций не должно зависеть от длины истории и размера пакета.
+// Запись одной транзакции: блокировка счета с проверкой владельца, INSERT с проверкой категории, чтение DTO,
+// сброс снимка баланса, UPDATE баланса, дневной индекс, месячные итоги, версия и журнал изменений.
+// Пакет добавляет чтение счетов и категорий пользователя, а INSERT строк идет одним пакетом JDBC.
+@SpringBootTest(classes = CashFlipApplication.class)
+@Import({TestcontainersConfiguration.class, StatementCounter.class})
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionQueryCountTest {
+
+    private static final int CREATE_STATEMENTS = 10;
+    private static final int BATCH_STATEMENTS = 11;
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 14, 9, 0);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatementCounter statements;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long accountId;
+    private int sequence;
+
+    @BeforeEach
+    void signIn() {
+        User user = userRepository.save(User.builder()
+                .name("query-count")
+                .email("query-count-" + UUID.randomUUID() + "@example.com")
+                .password("")
+                .build());
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getEmail(), "");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        AccountDTO account = new AccountDTO();
+        account.setName("query-count");
+        account.setBalance(BigDecimal.ZERO);
+        account.setCurrency("₽");
+        account.setIsMain(true);
+        accountId = accountService.createAccount(account).getId();
+
+        // Первая запись в счет строит его фильтр дубликатов; дальше стоимость записи постоянна
+        transactionService.createTransaction(transaction());
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createCostDoesNotDependOnHistory() {
+        assertThat(countCreate()).hasSize(CREATE_STATEMENTS);
+
+        transactionService.createTransactions(transactions(400));
+
+        assertThat(countCreate()).hasSize(CREATE_STATEMENTS);
+    }
+
+    @Test
+    void createDoesNotLoadEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionService.createTransaction(transaction());
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void batchCostDoesNotDependOnBatchSize() {
+        assertThat(countBatch(10)).hasSize(BATCH_STATEMENTS);
+        assertThat(countBatch(400)).hasSize(BATCH_STATEMENTS);
+    }
+
+    @Test
+    void listIsSingleQuery() {
+        transactionService.createTransactions(transactions(400));
+
+        statements.start();
+        List<TransactionDTO> all = transactionService.getUserTransactions();
+        assertThat(statements.stop()).hasSize(1);
+        assertThat(all).hasSize(401);
+
+        statements.start();
+        TransactionPageDTO first = transactionService.getUserTransactionsPage(50, null);
+        assertThat(statements.stop()).hasSize(1);
+
+        statements.start();
+        TransactionPageDTO second = transactionService.getUserTransactionsPage(50, first.getNextCursor());
+        assertThat(statements.stop()).hasSize(1);
+        assertThat(second.getItems()).hasSize(50);
+    }
+
+    private List<String> countCreate() {
+        statements.start();
+        transactionService.createTransaction(transaction());
+        return statements.stop();
+    }
+
+    private List<String> countBatch(int size) {
+        List<TransactionDTO> batch = transactions(size);
+        statements.start();
+        assertThat(transactionService.createTransactions(batch).getCreated()).isEqualTo(size);
+        return statements.stop();
+    }
+
+    private List<TransactionDTO> transactions(int count) {
+        List<TransactionDTO> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(transaction());
+        }
+        return transactions;
+    }
+
+    // Все транзакции одного дня и без категории, описания разные: ни одна не считается дубликатом
+    private TransactionDTO transaction() {
+        sequence++;
+        TransactionDTO dto = new TransactionDTO();
+        dto.setAccountId(accountId);
+        dto.setAmount(BigDecimal.valueOf(-sequence, 2));
+        dto.setDescription("query-count " + sequence);
+        dto.setDate(DAY.plusSeconds(sequence));
+        return dto;
+    }
+}
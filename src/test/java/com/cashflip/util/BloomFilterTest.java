@@ -0,0 +1,103 @@
+package com.cashflip.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain(random.nextLong(), random.nextLong() | 1)).isFalse();
+        }
+    }
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        long[][] hashes = hashes(new Random(2), 10_000);
+
+        for (long[] hash : hashes) {
+            filter.put(hash[0], hash[1]);
+        }
+
+        for (long[] hash : hashes) {
+            assertThat(filter.mightContain(hash[0], hash[1])).isTrue();
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearTargetAtCapacity() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long[] hash : hashes(new Random(3), 10_000)) {
+            filter.put(hash[0], hash[1]);
+        }
+
+        int falsePositives = 0;
+        for (long[] hash : hashes(new Random(4), 100_000)) {
+            if (filter.mightContain(hash[0], hash[1])) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws Exception {
+        BloomFilter filter = new BloomFilter(16_000, 0.01);
+        List<long[][]> parts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            parts.add(hashes(new Random(10 + i), 2000));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long[][] part : parts) {
+                futures.add(executor.submit(() -> {
+                    for (long[] hash : part) {
+                        filter.put(hash[0], hash[1]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (long[][] part : parts) {
+            for (long[] hash : part) {
+                assertThat(filter.mightContain(hash[0], hash[1])).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void reportsCapacity() {
+        assertThat(new BloomFilter(4096, 0.01).capacity()).isEqualTo(4096);
+        assertThat(new BloomFilter(0, 0.01).capacity()).isEqualTo(1);
+    }
+
+    // Второй хэш нечетный, как у DuplicateDetector: шаг по битам не вырождается
+    private static long[][] hashes(Random random, int count) {
+        long[][] hashes = new long[count][];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = new long[]{random.nextLong(), random.nextLong() | 1};
+        }
+        return hashes;
+    }
+}
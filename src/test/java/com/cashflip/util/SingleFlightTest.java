@@ -0,0 +1,153 @@
+package com.cashflip.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final SingleFlight<Long> flights = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callerWithoutFlightRunsTaskItself() {
+        AtomicInteger runs = new AtomicInteger();
+
+        flights.run(1L, runs::incrementAndGet);
+        flights.run(1L, runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+        assertThat(flights.executions()).isEqualTo(2);
+        assertThat(flights.coalesced()).isZero();
+    }
+
+    @Test
+    void burstDuringRunCostsOneFollowUp() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            if (runs.incrementAndGet() == 1) {
+                started.countDown();
+                await(release);
+            }
+            running.decrementAndGet();
+        };
+
+        Future<?> first = executor.submit(() -> flights.run(1L, task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<?>> burst = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            burst.add(executor.submit(() -> flights.run(1L, task)));
+        }
+        // Один из пришедших назначен на повторный запуск, остальные присоединились к нему
+        waitUntil(() -> flights.coalesced() == CALLERS - 1);
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        for (Future<?> caller : burst) {
+            caller.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(runs).hasValue(2);
+        assertThat(maxRunning).hasValue(1);
+        assertThat(flights.executions()).isEqualTo(2);
+
+        // Всплеск закончился - следующий вызов снова запускает задачу сам
+        flights.run(1L, task);
+        assertThat(runs).hasValue(3);
+    }
+
+    @Test
+    void followUpFailureReachesEveryWaiter() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable task = () -> {
+            if (runs.incrementAndGet() == 1) {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("first");
+            }
+            throw new IllegalStateException("follow-up");
+        };
+
+        Future<?> first = executor.submit(() -> flights.run(1L, task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<?>> burst = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            burst.add(executor.submit(() -> flights.run(1L, task)));
+        }
+        waitUntil(() -> flights.coalesced() == CALLERS - 1);
+        release.countDown();
+
+        // Ошибка текущего запуска достается только его владельцу, повторный запуск все равно выполняется
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().hasMessage("first");
+        for (Future<?> caller : burst) {
+            assertThatThrownBy(() -> caller.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("follow-up");
+        }
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable task = () -> {
+            bothStarted.countDown();
+            await(bothStarted);
+        };
+
+        Future<?> first = executor.submit(() -> flights.run(1L, task));
+        Future<?> second = executor.submit(() -> flights.run(2L, task));
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(flights.executions()).isEqualTo(2);
+        assertThat(flights.coalesced()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+}